@@ -32,4 +32,7 @@ public class AclConstants {
 
     public static final String ROLE_ADMIN = "ROLE_ADMIN";
     public static final String ROLE_USER = "ROLE_USER";
+
+    public static final String USER_ID_PARAMETER = "aclUserId";
+    public static final String RECURSIVE_IDS_PARAMETER_PREFIX = "aclRecursiveIds";
 }
@@ -25,19 +25,23 @@ import com.berrycloud.acl.annotation.AclRolePermission;
 import com.berrycloud.acl.annotation.AclRolePermissions;
 import com.berrycloud.acl.annotation.AclRoleProvider;
 import com.berrycloud.acl.annotation.AclSelf;
+import com.berrycloud.acl.annotation.AclStrategy;
 import com.berrycloud.acl.data.AclEntityMetaData;
 import com.berrycloud.acl.data.AclMetaData;
+import com.berrycloud.acl.data.AuthorityRegistry;
 import com.berrycloud.acl.data.CreatePermissionData;
 import com.berrycloud.acl.data.OwnerData;
 import com.berrycloud.acl.data.ParentData;
 import com.berrycloud.acl.data.PermissionData;
 import com.berrycloud.acl.data.PermissionLinkData;
+import com.berrycloud.acl.data.PermissionRegistry;
 import com.berrycloud.acl.data.RolePermissionData;
 import com.berrycloud.acl.domain.AclRole;
 import com.berrycloud.acl.domain.AclUser;
 import com.berrycloud.acl.domain.PermissionLink;
 import com.berrycloud.acl.domain.SimpleAclRole;
 import com.berrycloud.acl.domain.SimpleAclUser;
+import com.berrycloud.acl.domain.StructuredPermissionLink;
 import com.berrycloud.acl.repository.NoAcl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,6 +93,7 @@ public class AclLogicImpl implements AclLogic {
 
     private final EntityManager em;
     private String[] defaultSelfPermissions;
+    private final AclPredicateStrategy strategy;
 
     private Class<AclUser> aclUserType;
     private JpaEntityInformation<AclUser, ?> userInformation;
@@ -96,15 +101,19 @@ public class AclLogicImpl implements AclLogic {
     private Set<Class<?>> javaTypes;
 
     public AclLogicImpl(EntityManager em,
-                        @Value("${spring.data.jpa.acl.self-permissions:" + ALL_PERMISSION + "}") String[] defaultSelfPermissions) {
+                        @Value("${spring.data.jpa.acl.self-permissions:" + ALL_PERMISSION + "}") String[] defaultSelfPermissions,
+                        @Value("${spring.data.jpa.acl.strategy:JOIN}") AclPredicateStrategy strategy) {
         this.em = em;
         this.defaultSelfPermissions = defaultSelfPermissions;
+        this.strategy = strategy;
     }
 
     @SuppressWarnings("unchecked")
     @Transactional
     public AclMetaData createAclMetaData() {
         createJavaTypeSet();
+        permissionRegistry = new PermissionRegistry();
+        authorityRegistry = new AuthorityRegistry();
 
         aclUserType = (Class<AclUser>) searchEntityType(javaTypes, AclUser.class);
         userInformation = JpaEntityInformationSupport.getEntityInformation(aclUserType, em);
@@ -112,7 +121,10 @@ public class AclLogicImpl implements AclLogic {
 
         addDefaultUsersIfNeeded();
 
-        return new AclMetaData(createMetaDataMap(), new PermissionData(defaultSelfPermissions));
+        Map<Class<?>, AclEntityMetaData> metaDataMap = createMetaDataMap();
+        LOG.debug("{} permissions were registered", permissionRegistry.size());
+        return new AclMetaData(metaDataMap, new PermissionData(defaultSelfPermissions, permissionRegistry),
+                permissionRegistry, authorityRegistry);
     }
 
     private void createJavaTypeSet() {
@@ -166,11 +178,15 @@ public class AclLogicImpl implements AclLogic {
 
         IdentifiableType<?> identifiableType = (IdentifiableType<?>) type;
 
-        if (!identifiableType.hasSingleIdAttribute()) {
+        if (identifiableType.hasSingleIdAttribute()) {
+            metaData.setIdAttribute((SingularAttribute<? super Object, ?>) identifiableType
+                    .getId(identifiableType.getIdType().getJavaType()));
+        } else if (AclUser.class.isAssignableFrom(javaType)) {
             throw new IllegalArgumentException(javaType + " has a non-single id attribute!");
+        } else {
+            // @IdClass entities are handled by their owners, owner-groups, permission-links and parents only
+            LOG.debug("{} has a composite id: it cannot be materialized or evaluated recursively", javaType);
         }
-        metaData.setIdAttribute((SingularAttribute<? super Object, ?>) identifiableType
-                .getId(identifiableType.getIdType().getJavaType()));
 
         try {
             // We use BeanWrapper for checking annotations on fields AND getters and setters too
@@ -189,6 +205,7 @@ public class AclLogicImpl implements AclLogic {
         checkAclCreatePermission(metaData, javaType);
         checkAclRolePermission(metaData, javaType);
         checkAclRoleCondition(metaData, javaType);
+        checkAclStrategy(metaData, javaType);
         // call this one last. It overrides the role annotations
         checkNoAcl(metaData, javaType);
         return metaData;
@@ -208,13 +225,15 @@ public class AclLogicImpl implements AclLogic {
 
         for (AclRolePermission rolePermission : rolePermissions) {
             metaData.getRolePermissionList()
-                    .add(new RolePermissionData(rolePermission.roles(), rolePermission.value()));
+                    .add(new RolePermissionData(rolePermission.roles(), rolePermission.value(),
+                            permissionRegistry, authorityRegistry));
         }
 
         if (metaData.getRolePermissionList().isEmpty()) {
             // Add default behaviour - users with ROLE_ADMIN role automatically gain all permissions
             metaData.getRolePermissionList()
-                    .add(new RolePermissionData(new String[]{ROLE_ADMIN}, new String[]{ALL_PERMISSION}));
+                    .add(new RolePermissionData(new String[]{ROLE_ADMIN}, new String[]{ALL_PERMISSION},
+                            permissionRegistry, authorityRegistry));
         }
     }
 
@@ -223,13 +242,15 @@ public class AclLogicImpl implements AclLogic {
                 AclRoleCondition.class, AclRoleConditions.class);
 
         for (AclRoleCondition roleCondition : roleConditions) {
-            metaData.getRoleConditionList().add(new RolePermissionData(roleCondition.roles(), roleCondition.value()));
+            metaData.getRoleConditionList().add(new RolePermissionData(roleCondition.roles(), roleCondition.value(),
+                    permissionRegistry, authorityRegistry));
         }
 
         if (metaData.getRoleConditionList().isEmpty()) {
             // Add default behaviour - users with ANY roles could gain any permissions
             metaData.getRoleConditionList()
-                    .add(new RolePermissionData(new String[]{}, new String[]{ALL_PERMISSION}));
+                    .add(new RolePermissionData(new String[]{}, new String[]{ALL_PERMISSION}, permissionRegistry,
+                            authorityRegistry));
         }
     }
 
@@ -240,7 +261,21 @@ public class AclLogicImpl implements AclLogic {
             metaData.getRolePermissionList().clear();
             // Turn off ACL - users with ANY roles automatically gain all permissions
             metaData.getRolePermissionList()
-                    .add(new RolePermissionData(new String[]{}, new String[]{ALL_PERMISSION}));
+                    .add(new RolePermissionData(new String[]{}, new String[]{ALL_PERMISSION}, permissionRegistry,
+                            authorityRegistry));
+        }
+    }
+
+    private void checkAclStrategy(AclEntityMetaData metaData, Class<?> javaType) {
+        AclStrategy aclStrategy = AnnotationUtils.findAnnotation(javaType, AclStrategy.class);
+        if (aclStrategy != null) {
+            if (aclStrategy.value() == AclPredicateStrategy.CLOSURE && strategy != AclPredicateStrategy.CLOSURE) {
+                // The closure table is maintained only if the global strategy is CLOSURE
+                throw new IllegalStateException(javaType + " is annotated with @AclStrategy(CLOSURE), but the "
+                        + "closure table is not maintained. Set spring.data.jpa.acl.strategy to CLOSURE.");
+            }
+            metaData.setStrategy(aclStrategy.value());
+            LOG.trace("@AclStrategy annotation was processed. Strategy of {} is {}", javaType, aclStrategy.value());
         }
     }
 
@@ -265,7 +300,9 @@ public class AclLogicImpl implements AclLogic {
                 && PermissionLink.class.isAssignableFrom(typeDescriptor.getElementTypeDescriptor().getType())) {
             if ("target".equals(oneToMany.mappedBy())) {
                 LOG.trace("PermissionLink owner: {}", propertyName);
-                metaData.getPermissionLinkList().add(new PermissionLinkData(propertyName, "permission"));
+                Class<?> linkType = typeDescriptor.getElementTypeDescriptor().getType();
+                metaData.getPermissionLinkList().add(new PermissionLinkData(propertyName, linkType, "permission",
+                        StructuredPermissionLink.class.isAssignableFrom(linkType)));
             }
         }
     }
@@ -277,25 +314,29 @@ public class AclLogicImpl implements AclLogic {
             if (AclUser.class.isAssignableFrom(typeDescriptor.getObjectType())) {
                 // The owner is an AclUser
                 metaData.getOwnerDataList()
-                        .add(new OwnerData(propertyName, typeDescriptor.getObjectType(), false, aclOwner.value()));
+                        .add(new OwnerData(propertyName, typeDescriptor.getObjectType(), false, aclOwner.value(),
+                                permissionRegistry));
             } else if ((typeDescriptor.isArray() || typeDescriptor.isCollection())
                     && typeDescriptor.getElementTypeDescriptor() != null
                     && AclUser.class.isAssignableFrom(typeDescriptor.getElementTypeDescriptor().getObjectType())) {
                 // The owner is an AclUser collection
                 metaData.getOwnerDataList().add(new OwnerData(propertyName,
-                        typeDescriptor.getElementTypeDescriptor().getObjectType(), true, aclOwner.value()));
+                        typeDescriptor.getElementTypeDescriptor().getObjectType(), true, aclOwner.value(),
+                        permissionRegistry));
             } else if (isManagedType(typeDescriptor.getObjectType())) {
                 // The owner is NOT an AclUser, but a managed type. We treat it as a group. (It could have AclUser
                 // properties)
                 metaData.getOwnerGroupDataList()
-                        .add(new OwnerData(propertyName, typeDescriptor.getObjectType(), false, aclOwner.value()));
+                        .add(new OwnerData(propertyName, typeDescriptor.getObjectType(), false, aclOwner.value(),
+                                permissionRegistry));
             } else if ((typeDescriptor.isArray() || typeDescriptor.isCollection())
                     && typeDescriptor.getElementTypeDescriptor() != null
                     && isManagedType(typeDescriptor.getElementTypeDescriptor().getObjectType())) {
                 // The owner is NOT an AclUser, but a collection of a managed type. We treat it as a collection of
                 // groups.
                 metaData.getOwnerGroupDataList().add(new OwnerData(propertyName,
-                        typeDescriptor.getElementTypeDescriptor().getObjectType(), true, aclOwner.value()));
+                        typeDescriptor.getElementTypeDescriptor().getObjectType(), true, aclOwner.value(),
+                        permissionRegistry));
             } else {
                 LOG.warn("Non-managed entity property '{}.{} is annotated with @AclOwner ... ignored", javaType,
                         propertyName);
@@ -307,16 +348,27 @@ public class AclLogicImpl implements AclLogic {
                                 final TypeDescriptor typeDescriptor) {
         final AclParent aclParent = typeDescriptor.getAnnotation(AclParent.class);
         if (aclParent != null) {
-            if (isManagedType(typeDescriptor.getObjectType())
-                    || ((typeDescriptor.isArray() || typeDescriptor.isCollection())
+            Class<?> parentType = null;
+            if (isManagedType(typeDescriptor.getObjectType())) {
+                parentType = typeDescriptor.getObjectType();
+            } else if ((typeDescriptor.isArray() || typeDescriptor.isCollection())
                     && typeDescriptor.getElementTypeDescriptor() != null
-                    && isManagedType(typeDescriptor.getElementTypeDescriptor().getObjectType()))) {
+                    && isManagedType(typeDescriptor.getElementTypeDescriptor().getObjectType())) {
+                parentType = typeDescriptor.getElementTypeDescriptor().getObjectType();
+            }
+            if (parentType != null) {
                 if (aclParent.prefix().indexOf(PERMISSION_PREFIX_DELIMITER) != -1) {
                     LOG.warn("@AclParent's prefix property contains illegal character at '{}.{}' ... ignored", javaType,
                             propertyName);
                 } else {
-                    metaData.getParentDataList()
-                            .add(new ParentData(propertyName, aclParent.prefix(), aclParent.value()));
+                    // Single-valued parents of the same type without prefix could be evaluated recursively
+                    boolean selfReferencing = parentType.equals(javaType) && !typeDescriptor.isArray()
+                            && !typeDescriptor.isCollection() && aclParent.prefix().isEmpty();
+                    if (selfReferencing) {
+                        LOG.debug("Self-referencing @AclParent found: {}.{}", javaType, propertyName);
+                    }
+                    metaData.getParentDataList().add(new ParentData(propertyName, parentType, aclParent.prefix(),
+                            aclParent.value(), selfReferencing, permissionRegistry));
                 }
             } else {
                 LOG.warn("Non-managed entity property '{}.{}' is annotated by @AclParent ... ignored", javaType,
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.hibernate.HibernateException;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import com.berrycloud.acl.domain.AclPermissionClosure;
+
+/**
+ * Hibernate event listener for the {@link AclPredicateStrategy#CLOSURE} strategy. It's registered by the
+ * {@link AclPermissionClosureManager} in the event listener registry of its own entity manager factory, and reports
+ * every insert, update and delete of the entities to the manager.
+ * <p>
+ * The changes of the collections (e.g. a new member of an {@link com.berrycloud.acl.annotation.AclOwner} collection)
+ * don't fire entity events, so they are reported by the collection events: both the owner of the collection and the
+ * old and new elements of it are reported, because the rows of the elements can depend on the inverse side of the
+ * relation.
+ * <p>
+ * It's also called before the automatic flush of the queries. If the query reads the closure table, the reported
+ * changes are applied to the table first, so the predicates of the queries don't have to do it.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclPermissionClosureListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+        PostCollectionRemoveEventListener, AutoFlushEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient AclPermissionClosureManager closureManager;
+
+    public AclPermissionClosureListener(AclPermissionClosureManager closureManager) {
+        this.closureManager = closureManager;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        closureManager.markChanged(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        closureManager.markChanged(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        closureManager.markRemoved(event.getEntity());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        markChanged(event);
+    }
+
+    private void markChanged(AbstractCollectionEvent event) {
+        Object owner = event.getAffectedOwnerOrNull();
+        if (owner != null) {
+            closureManager.markChanged(owner);
+        }
+        PersistentCollection collection = event.getCollection();
+        // The snapshot contains the elements before the flush
+        markElementsChanged(collection.getStoredSnapshot());
+        if (collection.wasInitialized()) {
+            markElementsChanged(collection);
+        }
+    }
+
+    private void markElementsChanged(Object elements) {
+        if (elements instanceof Map) {
+            elements = ((Map<?, ?>) elements).values();
+        }
+        if (elements instanceof Collection) {
+            for (Object element : (Collection<?>) elements) {
+                if (element != null) {
+                    closureManager.markChanged(element);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) throws HibernateException {
+        for (Object querySpace : event.getQuerySpaces()) {
+            if (AclPermissionClosure.TABLE_NAME.equalsIgnoreCase(String.valueOf(querySpace))) {
+                closureManager.synchronize();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,664 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.proxy.HibernateProxyHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.berrycloud.acl.data.AclEntityMetaData;
+import com.berrycloud.acl.data.AclMetaData;
+import com.berrycloud.acl.data.OwnerData;
+import com.berrycloud.acl.data.OwnerGroupPlan;
+import com.berrycloud.acl.data.OwnerPlan;
+import com.berrycloud.acl.data.ParentData;
+import com.berrycloud.acl.data.ParentPlan;
+import com.berrycloud.acl.data.PermissionLinkData;
+import com.berrycloud.acl.data.PermissionLinkPlan;
+import com.berrycloud.acl.data.PermissionPlan;
+import com.berrycloud.acl.domain.AclPermissionClosure;
+import com.berrycloud.acl.domain.AclPermissionClosureId;
+import com.berrycloud.acl.domain.AclUser;
+import com.berrycloud.acl.domain.PermissionLink;
+
+import static com.berrycloud.acl.AclConstants.PERMISSION_PREFIX_DELIMITER;
+
+/**
+ * Maintains the materialized permission closure table of the {@link AclPredicateStrategy#CLOSURE} strategy. The table
+ * contains a row for every user, entity and permission where the user gains the permission to the entity via
+ * {@link com.berrycloud.acl.annotation.AclSelf}, {@link com.berrycloud.acl.annotation.AclOwner},
+ * {@link com.berrycloud.acl.annotation.AclParent} or {@link PermissionLink} relations.
+ * <p>
+ * The changed entities are reported by the {@link AclPermissionClosureListener} and collected for the current
+ * transaction. The rows of the changed entities and of all of the entities depending on them (children, entities owned
+ * by a changed owner-group, targets of a changed permission-link) are recalculated before the next query of the
+ * closure table in the transaction and before the commit. The rows of the parents are reused for the children, so the
+ * rows are not limited by the maximum depth. Only the prefixed permissions of the parents are limited by it.
+ * <p>
+ * The bulk deletes of the ACL repositories remove the entities one by one in this mode, so the listener is called.
+ * Other bulk operations (e.g. {@code @Modifying} queries) bypass it. Call {@link #markChanged(Object)} or
+ * {@link #rebuild()} after them if they modify the ACL relations.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclPermissionClosureManager implements SmartInitializingSingleton {
+
+    private static Logger LOG = LoggerFactory.getLogger(AclPermissionClosureManager.class);
+
+    private static final String INSERT_SQL = "INSERT INTO " + AclPermissionClosure.TABLE_NAME
+            + " (user_id, entity_type, entity_id, permission) VALUES (?1, ?2, ?3, ?4)";
+
+    private static final String INSERT_NUMERIC_SQL = "INSERT INTO " + AclPermissionClosure.TABLE_NAME
+            + " (user_id, entity_type, entity_id, permission, entity_num_id) VALUES (?1, ?2, ?3, ?4, ?5)";
+
+    /**
+     * Maximum number of recalculations of the same entity in one synchronization. It prevents infinite loops if the
+     * parent relations contain a loop.
+     */
+    private static final int MAX_RECALCULATIONS = 32;
+
+    private final EntityManager em;
+    private final AclMetaData aclMetaData;
+    private final AclPermissionPlanner permissionPlanner;
+    private final PlatformTransactionManager transactionManager;
+    private final boolean rebuildOnStartup;
+
+    // The materialized permissions of the entity types
+    private final Map<Class<?>, Set<String>> permissionMap;
+
+    // The relations pointing to the entity types
+    private final Map<Class<?>, List<Dependency>> dependencyMap = new HashMap<>();
+
+    // Dependents of these types should be always recalculated
+    private final Set<Class<?>> linkTypes = new HashSet<>();
+
+    public AclPermissionClosureManager(EntityManager em, AclMetaData aclMetaData,
+            PlatformTransactionManager transactionManager, int maxDepth, String[] permissions,
+            boolean rebuildOnStartup) {
+        this.em = em;
+        this.aclMetaData = aclMetaData;
+        this.permissionPlanner = new AclPermissionPlanner(aclMetaData, maxDepth);
+        this.transactionManager = transactionManager;
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.permissionMap = createPermissionMap(Arrays.asList(permissions), maxDepth);
+        createDependencyMap();
+        registerListener();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (rebuildOnStartup) {
+            new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    rebuild();
+                }
+            });
+        }
+    }
+
+    /**
+     * Registers the {@link AclPermissionClosureListener} of this manager in the entity manager factory of the manager,
+     * so the changes of other persistence units are not reported to it.
+     */
+    private void registerListener() {
+        SessionFactoryImplementor sessionFactory;
+        try {
+            sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        } catch (PersistenceException e) {
+            LOG.warn("The permission closure table is maintained only by Hibernate. The changes are not tracked.");
+            return;
+        }
+        AclPermissionClosureListener listener = new AclPermissionClosureListener(this);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+        // The changes must be applied before the default listener decides whether the flush is needed
+        registry.prependListeners(EventType.AUTO_FLUSH, listener);
+    }
+
+    /**
+     * Checks whether the given permission of the given entity type is stored in the closure table.
+     */
+    public boolean isMaterialized(Class<?> entityType, String permission) {
+        Set<String> permissions = permissionMap.get(entityType);
+        return permissions != null && permissions.contains(permission);
+    }
+
+    /**
+     * Registers a new or modified entity. Its rows and the rows of its dependents will be recalculated.
+     */
+    public void markChanged(Object entity) {
+        // The elements of the collections can be uninitialized proxies
+        Class<?> entityType = HibernateProxyHelper.getClassWithoutInitializingProxy(entity);
+        if (!permissionMap.containsKey(entityType)) {
+            return;
+        }
+        ClosureChanges changes = getChanges(true);
+        if (changes == null) {
+            LOG.warn("{} was modified outside of a transaction. The permission closure table is not updated.",
+                    entityType);
+            return;
+        }
+        EntityKey key = new EntityKey(entityType, getId(entity));
+        changes.changed.add(key);
+        changes.add(key);
+    }
+
+    /**
+     * Registers a removed entity. Its rows will be deleted.
+     */
+    public void markRemoved(Object entity) {
+        Class<?> entityType = entity.getClass();
+        if (!permissionMap.containsKey(entityType)) {
+            return;
+        }
+        ClosureChanges changes = getChanges(true);
+        if (changes == null) {
+            LOG.warn("{} was removed outside of a transaction. The permission closure table is not updated.",
+                    entityType);
+            return;
+        }
+        Object id = getId(entity);
+        changes.removed.add(new EntityKey(entityType, id));
+        if (entity instanceof AclUser) {
+            changes.removedUsers.add(String.valueOf(id));
+        }
+        if (entity instanceof PermissionLink) {
+            // The link is already removed from the DB, so its target cannot be found via query
+            Object target = ((PermissionLink<?, ?>) entity).getTarget();
+            for (Dependency dependency : getDependencies(entityType)) {
+                if (dependency.type.isInstance(target)) {
+                    changes.add(new EntityKey(dependency.type, getId(target)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the registered changes of the current transaction to the closure table. If the flush mode is AUTO the
+     * persistence context is flushed first, exactly as it would be flushed before the next query anyway. It's called by
+     * the {@link AclPermissionClosureListener} before the queries of the closure table.
+     */
+    public void synchronize() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        if (em.getFlushMode() == FlushModeType.AUTO) {
+            em.flush();
+        }
+        ClosureChanges changes = getChanges(false);
+        if (changes != null) {
+            process(changes);
+        }
+    }
+
+    /**
+     * Recalculates all of the rows of the closure table. It should be called in a transaction.
+     */
+    public void rebuild() {
+        LOG.info("Rebuilding the permission closure table");
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        em.createQuery(cb.createCriteriaDelete(AclPermissionClosure.class)).executeUpdate();
+
+        ClosureChanges changes = getChanges(true);
+        for (Class<?> entityType : permissionMap.keySet()) {
+            CriteriaQuery<Object> query = cb.createQuery(Object.class);
+            Root<?> root = query.from(entityType);
+            query.select(root.get(getIdAttributeName(entityType)));
+            for (Object id : em.createQuery(query).getResultList()) {
+                changes.add(new EntityKey(entityType, id));
+            }
+        }
+        process(changes);
+    }
+
+    private void process(ClosureChanges changes) {
+        if (changes.processing) {
+            return;
+        }
+        changes.processing = true;
+        try {
+            Map<EntityKey, Integer> recalculations = new HashMap<>();
+            while (!changes.removed.isEmpty() || !changes.removedUsers.isEmpty() || !changes.queue.isEmpty()) {
+                for (EntityKey key : drain(changes.removed)) {
+                    changes.deleted.add(key);
+                    deleteRows(key.type.getName(), String.valueOf(key.id));
+                }
+                for (String userId : drain(changes.removedUsers)) {
+                    deleteUserRows(userId);
+                }
+                EntityKey key = changes.queue.poll();
+                if (key == null) {
+                    continue;
+                }
+                changes.queued.remove(key);
+                boolean changed = changes.changed.remove(key);
+                if (changes.deleted.contains(key)) {
+                    continue;
+                }
+                Integer count = recalculations.get(key);
+                count = count == null ? 1 : count + 1;
+                if (count > MAX_RECALCULATIONS) {
+                    LOG.warn("Permission closure of {} #{} is not stable. Check the @AclParent loops.", key.type,
+                            key.id);
+                    continue;
+                }
+                recalculations.put(key, count);
+
+                if (recalculate(key) || changed || linkTypes.contains(key.type)) {
+                    for (EntityKey dependent : findDependents(key)) {
+                        changes.add(dependent);
+                    }
+                }
+            }
+        } finally {
+            changes.processing = false;
+        }
+    }
+
+    /**
+     * Recalculates the rows of the given entity.
+     *
+     * @return true if the rows were changed
+     */
+    private boolean recalculate(EntityKey key) {
+        String entityType = key.type.getName();
+        String entityId = String.valueOf(key.id);
+        LOG.trace("Recalculating permission closure of {} #{}", entityType, entityId);
+
+        Set<AclPermissionClosureId> rows = new HashSet<>();
+        for (String permission : permissionMap.get(key.type)) {
+            for (String userId : findUserIds(key.type, key.id, permission)) {
+                rows.add(new AclPermissionClosureId(userId, entityType, entityId, permission));
+            }
+        }
+
+        if (rows.equals(findRows(entityType, entityId))) {
+            return false;
+        }
+        deleteRows(entityType, entityId);
+        boolean numeric = AclPermissionClosure.isNumericIdType(key.id.getClass());
+        for (AclPermissionClosureId row : rows) {
+            Query insert = em.createNativeQuery(numeric ? INSERT_NUMERIC_SQL : INSERT_SQL)
+                    .setParameter(1, row.getUserId()).setParameter(2, row.getEntityType())
+                    .setParameter(3, row.getEntityId()).setParameter(4, row.getPermission());
+            if (numeric) {
+                insert.setParameter(5, ((Number) key.id).longValue());
+            }
+            insert.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Collects the ids of the users who have the given permission to the given entity.
+     */
+    private Set<String> findUserIds(Class<?> entityType, Object id, String permission) {
+        Set<String> userIds = new HashSet<>();
+        // The direct paths and the first level of the parents are enough. The deeper levels are in the parents' rows
+        PermissionPlan plan = permissionPlanner.getPermissionPlan(entityType, permission, 1);
+        if (plan.isEmpty()) {
+            return userIds;
+        }
+
+        if (plan.isSelf()) {
+            userIds.add(String.valueOf(id));
+        }
+        for (OwnerPlan ownerPlan : plan.getOwners()) {
+            addOwnerIds(userIds, entityType, id, null, null, ownerPlan);
+        }
+        for (OwnerGroupPlan ownerGroupPlan : plan.getOwnerGroups()) {
+            for (OwnerPlan ownerPlan : ownerGroupPlan.getOwners()) {
+                addOwnerIds(userIds, entityType, id, null, ownerGroupPlan, ownerPlan);
+            }
+        }
+        for (PermissionLinkPlan permissionLinkPlan : plan.getPermissionLinks()) {
+            for (OwnerPlan ownerPlan : permissionLinkPlan.getOwners()) {
+                addOwnerIds(userIds, entityType, id, permissionLinkPlan, null, ownerPlan);
+            }
+            for (OwnerGroupPlan ownerGroupPlan : permissionLinkPlan.getOwnerGroups()) {
+                for (OwnerPlan ownerPlan : ownerGroupPlan.getOwners()) {
+                    addOwnerIds(userIds, entityType, id, permissionLinkPlan, ownerGroupPlan, ownerPlan);
+                }
+            }
+        }
+        for (ParentPlan parentPlan : plan.getParents()) {
+            addParentUserIds(userIds, entityType, id, parentPlan);
+        }
+        return userIds;
+    }
+
+    private void addOwnerIds(Set<String> userIds, Class<?> entityType, Object id,
+            PermissionLinkPlan permissionLinkPlan, OwnerGroupPlan ownerGroupPlan, OwnerPlan ownerPlan) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Object> query = cb.createQuery(Object.class);
+        Root<?> root = query.from(entityType);
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get(getIdAttributeName(entityType)), id));
+
+        From<?, ?> from = root;
+        if (permissionLinkPlan != null) {
+            from = from.join(permissionLinkPlan.getPropertyName());
+            predicates.add(AclUserPermissionSpecification.createOnPredicate(cb, from, permissionLinkPlan));
+        }
+        if (ownerGroupPlan != null) {
+            from = from.join(ownerGroupPlan.getPropertyName());
+        }
+        Join<Object, Object> owner = from.join(ownerPlan.getPropertyName());
+        query.select(owner.get(ownerPlan.getIdAttribute()));
+        query.where(predicates.toArray(new Predicate[predicates.size()]));
+
+        for (Object userId : em.createQuery(query).getResultList()) {
+            userIds.add(String.valueOf(userId));
+        }
+    }
+
+    private void addParentUserIds(Set<String> userIds, Class<?> entityType, Object id, ParentPlan parentPlan) {
+        Class<?> parentType = parentPlan.getPlan().getEntityType();
+        String parentPermission = parentPlan.getPlan().getPermission();
+        if (!isMaterialized(parentType, parentPermission)) {
+            LOG.debug("Permission '{}' of {} is not materialized. Parent is skipped.", parentPermission, parentType);
+            return;
+        }
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Object> parentQuery = cb.createQuery(Object.class);
+        Root<?> root = parentQuery.from(entityType);
+        Join<Object, Object> parent = root.join(parentPlan.getPropertyName());
+        parentQuery.select(parent.get(getIdAttributeName(parentType)));
+        parentQuery.where(cb.equal(root.get(getIdAttributeName(entityType)), id));
+        List<String> parentIds = new ArrayList<>();
+        for (Object parentId : em.createQuery(parentQuery).getResultList()) {
+            parentIds.add(String.valueOf(parentId));
+        }
+        if (parentIds.isEmpty()) {
+            return;
+        }
+
+        // The rows of the parents are already calculated
+        CriteriaQuery<String> query = cb.createQuery(String.class);
+        Path<Object> closureId = query.from(AclPermissionClosure.class).get("id");
+        query.select(closureId.<String>get("userId"));
+        query.where(cb.equal(closureId.get("entityType"), parentType.getName()),
+                cb.equal(closureId.get("permission"), parentPermission), closureId.get("entityId").in(parentIds));
+        userIds.addAll(em.createQuery(query).getResultList());
+    }
+
+    private Set<AclPermissionClosureId> findRows(String entityType, String entityId) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<AclPermissionClosureId> query = cb.createQuery(AclPermissionClosureId.class);
+        Path<AclPermissionClosureId> closureId = query.from(AclPermissionClosure.class).get("id");
+        query.select(closureId);
+        query.where(cb.equal(closureId.get("entityType"), entityType), cb.equal(closureId.get("entityId"), entityId));
+        return new HashSet<>(em.createQuery(query).getResultList());
+    }
+
+    private void deleteRows(String entityType, String entityId) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaDelete<AclPermissionClosure> delete = cb.createCriteriaDelete(AclPermissionClosure.class);
+        Path<Object> closureId = delete.from(AclPermissionClosure.class).get("id");
+        delete.where(cb.equal(closureId.get("entityType"), entityType), cb.equal(closureId.get("entityId"), entityId));
+        em.createQuery(delete).executeUpdate();
+    }
+
+    private void deleteUserRows(String userId) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaDelete<AclPermissionClosure> delete = cb.createCriteriaDelete(AclPermissionClosure.class);
+        Path<Object> closureId = delete.from(AclPermissionClosure.class).get("id");
+        delete.where(cb.equal(closureId.get("userId"), userId));
+        em.createQuery(delete).executeUpdate();
+    }
+
+    /**
+     * Finds the entities what have a parent, owner-group or permission-link relation to the given entity.
+     */
+    private List<EntityKey> findDependents(EntityKey key) {
+        List<EntityKey> dependents = new ArrayList<>();
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        for (Dependency dependency : getDependencies(key.type)) {
+            CriteriaQuery<Object> query = cb.createQuery(Object.class);
+            Root<?> root = query.from(dependency.type);
+            Join<Object, Object> join = root.join(dependency.propertyName);
+            query.select(root.get(getIdAttributeName(dependency.type)));
+            query.where(cb.equal(join.get(getIdAttributeName(key.type)), key.id));
+            for (Object id : em.createQuery(query).getResultList()) {
+                dependents.add(new EntityKey(dependency.type, id));
+            }
+        }
+        return dependents;
+    }
+
+    private List<Dependency> getDependencies(Class<?> entityType) {
+        List<Dependency> dependencies = dependencyMap.get(entityType);
+        return dependencies == null ? Collections.<Dependency>emptyList() : dependencies;
+    }
+
+    private String getIdAttributeName(Class<?> entityType) {
+        return aclMetaData.getAclEntityMetaData(entityType).getIdAttribute().getName();
+    }
+
+    private Object getId(Object entity) {
+        return em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    private ClosureChanges getChanges(boolean create) {
+        ClosureChanges changes = (ClosureChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null && create && TransactionSynchronizationManager.isSynchronizationActive()) {
+            changes = new ClosureChanges();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        return changes;
+    }
+
+    private static <E> List<E> drain(Collection<E> collection) {
+        List<E> list = new ArrayList<>(collection);
+        collection.clear();
+        return list;
+    }
+
+    /**
+     * Collects the materialized permissions of the managed entity types. Parents are checked with the prefixed
+     * permissions, so these permissions are materialized for the parent types too. (Up to the maximum depth.)
+     */
+    private Map<Class<?>, Set<String>> createPermissionMap(List<String> permissions, int maxDepth) {
+        Map<Class<?>, Set<String>> map = new HashMap<>();
+        for (Class<?> entityType : aclMetaData.getManagedTypes()) {
+            // Composite ids (without id attribute) cannot be stored in the closure table
+            if (!AclPermissionClosure.class.equals(entityType)
+                    && aclMetaData.getAclEntityMetaData(entityType).getIdAttribute() != null) {
+                map.put(entityType, new HashSet<>(permissions));
+            }
+        }
+
+        for (int depth = 0; depth < maxDepth; depth++) {
+            for (Class<?> entityType : map.keySet()) {
+                for (ParentData parentData : aclMetaData.getAclEntityMetaData(entityType).getParentDataList()) {
+                    String permissionPrefix = parentData.getPermissionPrefix();
+                    if (permissionPrefix.isEmpty()) {
+                        continue;
+                    }
+                    for (String permission : new ArrayList<>(map.get(entityType))) {
+                        if (!parentData.hasPermission(permission)) {
+                            continue;
+                        }
+                        for (Class<?> parentType : map.keySet()) {
+                            if (parentData.getPropertyType().isAssignableFrom(parentType)) {
+                                map.get(parentType).add(permissionPrefix + PERMISSION_PREFIX_DELIMITER + permission);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // The materialized permissions are declared by the configuration, so their plans are cached by the planner
+        for (Set<String> entityPermissions : map.values()) {
+            for (String permission : entityPermissions) {
+                aclMetaData.getPermissionRegistry().getPermission(permission);
+            }
+        }
+        return map;
+    }
+
+    private void createDependencyMap() {
+        for (Class<?> entityType : permissionMap.keySet()) {
+            AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(entityType);
+            for (ParentData parentData : metaData.getParentDataList()) {
+                addDependency(entityType, parentData.getPropertyName(), parentData.getPropertyType(), false);
+            }
+            for (OwnerData ownerGroupData : metaData.getOwnerGroupDataList()) {
+                addDependency(entityType, ownerGroupData.getPropertyName(), ownerGroupData.getPropertyType(), false);
+            }
+            for (PermissionLinkData permissionLinkData : metaData.getPermissionLinkList()) {
+                addDependency(entityType, permissionLinkData.getPropertyName(), permissionLinkData.getLinkType(),
+                        true);
+            }
+        }
+    }
+
+    private void addDependency(Class<?> entityType, String propertyName, Class<?> propertyType, boolean link) {
+        for (Class<?> type : permissionMap.keySet()) {
+            if (propertyType.isAssignableFrom(type)) {
+                List<Dependency> dependencies = dependencyMap.get(type);
+                if (dependencies == null) {
+                    dependencies = new ArrayList<>();
+                    dependencyMap.put(type, dependencies);
+                }
+                dependencies.add(new Dependency(entityType, propertyName));
+                if (link) {
+                    linkTypes.add(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * A relation of the given entity type pointing to an other entity type.
+     */
+    private static class Dependency {
+
+        private final Class<?> type;
+        private final String propertyName;
+
+        Dependency(Class<?> type, String propertyName) {
+            this.type = type;
+            this.propertyName = propertyName;
+        }
+    }
+
+    private static class EntityKey {
+
+        private final Class<?> type;
+        private final Object id;
+
+        EntityKey(Class<?> type, Object id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EntityKey)) {
+                return false;
+            }
+            EntityKey other = (EntityKey) o;
+            return type.equals(other.type) && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + id.hashCode();
+        }
+    }
+
+    /**
+     * The registered changes of the current transaction. They are applied before the commit at the latest.
+     */
+    private class ClosureChanges extends TransactionSynchronizationAdapter {
+
+        private final Deque<EntityKey> queue = new ArrayDeque<>();
+        private final Set<EntityKey> queued = new HashSet<>();
+        private final Set<EntityKey> changed = new HashSet<>();
+        private final Set<EntityKey> removed = new HashSet<>();
+        private final Set<EntityKey> deleted = new HashSet<>();
+        private final Set<String> removedUsers = new HashSet<>();
+        private boolean processing;
+
+        void add(EntityKey key) {
+            if (queued.add(key)) {
+                queue.add(key);
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!readOnly) {
+                em.flush();
+                process(this);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AclPermissionClosureManager.this);
+        }
+    }
+}
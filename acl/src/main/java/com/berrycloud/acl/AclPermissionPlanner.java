@@ -0,0 +1,396 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+import static com.berrycloud.acl.AclConstants.ALL_PERMISSION;
+import static com.berrycloud.acl.AclConstants.PERMISSION_PREFIX_DELIMITER;
+import static com.berrycloud.acl.AclConstants.READ_PERMISSION;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.berrycloud.acl.data.AclEntityMetaData;
+import com.berrycloud.acl.data.AclMetaData;
+import com.berrycloud.acl.data.OwnerData;
+import com.berrycloud.acl.data.OwnerGroupPlan;
+import com.berrycloud.acl.data.OwnerPlan;
+import com.berrycloud.acl.data.ParentData;
+import com.berrycloud.acl.data.ParentPlan;
+import com.berrycloud.acl.data.PermissionLinkData;
+import com.berrycloud.acl.data.PermissionLinkPlan;
+import com.berrycloud.acl.data.PermissionPlan;
+import com.berrycloud.acl.domain.AclUser;
+
+/**
+ * Compiles and caches the {@link PermissionPlan}s of the managed entities. A plan is compiled from the
+ * {@link AclMetaData} when it's requested first time for an entity type and permission, then the same immutable plan is
+ * returned for all of the subsequent requests. Only the plans of the permissions interned in the
+ * {@link com.berrycloud.acl.data.PermissionRegistry} are cached (the declared and the precompiled ones), the plans of
+ * the other permissions are compiled for every request, so the cache cannot grow without limit.
+ * <p>
+ * The grant paths what can never match are pruned from the plans: the owner-groups without owners, the
+ * permission-links without owners, and the parents what cannot grant the prefixed permission through any of their own
+ * grant paths (including their transitive parents). So the predicates don't join these properties at all.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclPermissionPlanner {
+
+    private static Logger LOG = LoggerFactory.getLogger(AclPermissionPlanner.class);
+
+    private final AclMetaData aclMetaData;
+
+    /**
+     * Maximum depth of parent-permission checks.
+     */
+    private final int maxDepth;
+
+    /**
+     * Maximum length of the parent chains followed by the reachability analysis. The longer chains are kept.
+     */
+    private static final int MAX_REACHABILITY_DEPTH = 32;
+
+    private final ConcurrentMap<PlanKey, PermissionPlan> planCache = new ConcurrentHashMap<>();
+
+    /**
+     * The entity types and permissions what are known to be granted by at least one grant path
+     */
+    private final Set<PlanKey> reachable = Collections.newSetFromMap(new ConcurrentHashMap<PlanKey, Boolean>());
+
+    public AclPermissionPlanner(AclMetaData aclMetaData, int maxDepth) {
+        this.aclMetaData = aclMetaData;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Returns the plan of the grant paths of the given entity type for the given permission.
+     *
+     * @param entityType
+     *            the type of the checked entity
+     * @param permission
+     *            the checked permission
+     * @return the compiled plan. Never null.
+     */
+    public PermissionPlan getPermissionPlan(Class<?> entityType, String permission) {
+        return getPermissionPlan(entityType, permission, maxDepth);
+    }
+
+    /**
+     * Returns the plan of the grant paths of the given entity type for the given permission using the given depth
+     * instead of the maximum depth.
+     */
+    public PermissionPlan getPermissionPlan(Class<?> entityType, String permission, int depth) {
+        if (!isCached(permission)) {
+            return compile(entityType, permission, depth);
+        }
+        PlanKey key = new PlanKey(entityType, permission, depth);
+        PermissionPlan plan = planCache.get(key);
+        if (plan == null) {
+            plan = compile(entityType, permission, depth);
+            PermissionPlan existingPlan = planCache.putIfAbsent(key, plan);
+            if (existingPlan != null) {
+                plan = existingPlan;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Compiles the plans of all of the managed entity types for the given permissions in advance, so the reachability
+     * analysis runs at startup instead of the first queries.
+     *
+     * @param permissions
+     *            the permissions to compile the plans for
+     */
+    public void precompile(Collection<String> permissions) {
+        for (String permission : permissions) {
+            aclMetaData.getPermissionRegistry().getPermission(permission);
+        }
+        int count = 0;
+        for (Class<?> entityType : aclMetaData.getManagedTypes()) {
+            for (String permission : permissions) {
+                if (getPermissionPlan(entityType, permission).isEmpty()) {
+                    LOG.debug("No grant paths of {} for '{}' permission", entityType, permission);
+                }
+                count++;
+            }
+        }
+        LOG.debug("{} permission plans are compiled", count);
+    }
+
+    private boolean isCached(String permission) {
+        return aclMetaData.getPermissionRegistry().isRegistered(permission);
+    }
+
+    private PermissionPlan compile(Class<?> entityType, String permission, int depth) {
+        LOG.trace("Compiling permission plan of {} for '{}' permission", entityType, permission);
+        AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(entityType);
+        if (metaData == null) {
+            LOG.trace("Not handled entity type: {}", entityType);
+            return new PermissionPlan(entityType, permission, null, false, Collections.<OwnerPlan>emptyList(),
+                    Collections.<OwnerGroupPlan>emptyList(), Collections.<PermissionLinkPlan>emptyList(),
+                    Collections.<ParentPlan>emptyList());
+        }
+
+        boolean self = AclUser.class.isAssignableFrom(entityType)
+                && aclMetaData.getSelfPermissions().hasPermission(permission);
+
+        List<ParentPlan> parents = depth > 0 ? compileParents(metaData, permission, depth)
+                : Collections.<ParentPlan>emptyList();
+
+        return new PermissionPlan(entityType, permission, metaData.getIdAttribute(), self,
+                compileOwners(metaData, permission, false), compileOwnerGroups(metaData, permission),
+                compilePermissionLinks(metaData, permission), parents);
+    }
+
+    /**
+     * Compiles the direct owners defined by {@link com.berrycloud.acl.annotation.AclOwner} annotation
+     */
+    private List<OwnerPlan> compileOwners(AclEntityMetaData metaData, String permission, boolean ownerGroup) {
+        List<OwnerPlan> owners = new ArrayList<>();
+        for (OwnerData ownerData : metaData.getOwnerDataList()) {
+            if (ownerGroup || ownerData.hasPermission(permission)) {
+                owners.add(new OwnerPlan(ownerData.getPropertyName(), ownerData.isCollection(),
+                        aclMetaData.getAclEntityMetaData(ownerData.getPropertyType()).getIdAttribute()));
+            }
+        }
+        return Collections.unmodifiableList(owners);
+    }
+
+    /**
+     * Compiles the indirect owners defined by {@link com.berrycloud.acl.annotation.AclOwner} annotation on NON-AclUser
+     * fields
+     */
+    private List<OwnerGroupPlan> compileOwnerGroups(AclEntityMetaData metaData, String permission) {
+        List<OwnerGroupPlan> ownerGroups = new ArrayList<>();
+        for (OwnerData ownerGroupData : metaData.getOwnerGroupDataList()) {
+            if (ownerGroupData.hasPermission(permission)) {
+                AclEntityMetaData groupMetaData = aclMetaData.getAclEntityMetaData(ownerGroupData.getPropertyType());
+                List<OwnerPlan> owners = compileOwners(groupMetaData, permission, true);
+                if (owners.isEmpty()) {
+                    LOG.trace("Pruning 'owner-group' without owners: {}", ownerGroupData.getPropertyName());
+                    continue;
+                }
+                ownerGroups.add(new OwnerGroupPlan(ownerGroupData.getPropertyName(), owners));
+            }
+        }
+        return Collections.unmodifiableList(ownerGroups);
+    }
+
+    /**
+     * Compiles the parent objects defined by {@link com.berrycloud.acl.annotation.AclParent} annotation
+     */
+    private List<ParentPlan> compileParents(AclEntityMetaData metaData, String permission, int depth) {
+        List<ParentPlan> parents = new ArrayList<>();
+        for (ParentData parentData : metaData.getParentDataList()) {
+            if (parentData.hasPermission(permission)) {
+                String parentPermission = getParentPermission(parentData, permission);
+                if (!isReachable(parentData.getPropertyType(), parentPermission, new HashSet<PlanKey>())) {
+                    LOG.trace("Pruning unreachable 'parent': {} for '{}' permission", parentData.getPropertyName(),
+                            parentPermission);
+                    continue;
+                }
+                parents.add(new ParentPlan(parentData.getPropertyName(),
+                        getPermissionPlan(parentData.getPropertyType(), parentPermission, depth - 1),
+                        parentData.isSelfReferencing()));
+            }
+        }
+        return Collections.unmodifiableList(parents);
+    }
+
+    /**
+     * Compiles the permissionLinks
+     */
+    private List<PermissionLinkPlan> compilePermissionLinks(AclEntityMetaData metaData, String permission) {
+        List<PermissionLinkPlan> permissionLinks = new ArrayList<>();
+        for (PermissionLinkData permissionLinkData : metaData.getPermissionLinkList()) {
+            AclEntityMetaData linkMetaData = aclMetaData.getAclEntityMetaData(permissionLinkData.getLinkType());
+            List<OwnerPlan> owners = compileOwners(linkMetaData, permission, false);
+            List<OwnerGroupPlan> ownerGroups = compileOwnerGroups(linkMetaData, permission);
+            if (owners.isEmpty() && ownerGroups.isEmpty()) {
+                LOG.trace("Pruning 'permission-link' without owners: {}", permissionLinkData.getPropertyName());
+                continue;
+            }
+
+            int index = permission.lastIndexOf(PERMISSION_PREFIX_DELIMITER) + 1;
+            if (permissionLinkData.isStructured()) {
+                permissionLinks.add(compileStructuredPermissionLink(permissionLinkData.getPropertyName(),
+                        permission.substring(index), permission.substring(0, index), owners, ownerGroups));
+                continue;
+            }
+
+            List<String> permissions = new ArrayList<>();
+            List<String> permissionPatterns = new ArrayList<>();
+            List<String> excludedPermissionPatterns = new ArrayList<>();
+            compileOnClause(permission.substring(index), permission.substring(0, index), permissions,
+                    permissionPatterns, excludedPermissionPatterns);
+
+            permissionLinks.add(new PermissionLinkPlan(permissionLinkData.getPropertyName(),
+                    permissionLinkData.getPermissionField(), Collections.unmodifiableList(permissions),
+                    Collections.unmodifiableList(permissionPatterns),
+                    Collections.unmodifiableList(excludedPermissionPatterns), owners, ownerGroups));
+        }
+        return Collections.unmodifiableList(permissionLinks);
+    }
+
+    /**
+     * Compiles the permissionLink of {@link com.berrycloud.acl.domain.StructuredPermissionLink}s. It's the same check
+     * as the one of {@link #compileOnClause(String, String, List, List, List)} on the prefix and name fields: the
+     * {@code "read"} permission is granted by any top level permission or any permission under the first prefix of the
+     * path, the other permissions are granted by the permission itself or the {@code "all"} permission on the top
+     * level or on any prefix of the path.
+     */
+    private PermissionLinkPlan compileStructuredPermissionLink(String propertyName, String permission,
+            String prefixes, List<OwnerPlan> owners, List<OwnerGroupPlan> ownerGroups) {
+        List<String> permissionPrefixes = new ArrayList<>();
+        List<String> permissionPrefixPatterns = new ArrayList<>();
+        List<String> permissionNames = new ArrayList<>();
+        if (permission.equals(READ_PERMISSION)) {
+            if (!prefixes.isEmpty()) {
+                // It contains all of the longer prefixes of the path
+                int index = prefixes.indexOf(PERMISSION_PREFIX_DELIMITER) + 1;
+                permissionPrefixPatterns.add(prefixes.substring(0, index) + "%");
+            }
+        } else {
+            permissionNames.add(ALL_PERMISSION);
+            permissionNames.add(permission);
+            int index = prefixes.length();
+            while (index > 0) {
+                permissionPrefixes.add(prefixes.substring(0, index));
+                index = prefixes.lastIndexOf(PERMISSION_PREFIX_DELIMITER, index - 2) + 1;
+            }
+        }
+        return new PermissionLinkPlan(propertyName, Collections.unmodifiableList(permissionPrefixes),
+                Collections.unmodifiableList(permissionPrefixPatterns), Collections.unmodifiableList(permissionNames),
+                owners, ownerGroups);
+    }
+
+    private String getParentPermission(ParentData parentData, String permission) {
+        String permissionPrefix = parentData.getPermissionPrefix();
+        return permissionPrefix.isEmpty() ? permission : permissionPrefix + PERMISSION_PREFIX_DELIMITER + permission;
+    }
+
+    /**
+     * Checks whether the given permission of the given entity type can be granted by any of its grant paths. The
+     * parents are followed without the depth limit (so the plans of the limited depths what are used by the
+     * {@link AclPermissionClosureManager} keep the parents too), but every entity type and permission is visited only
+     * once on a chain, so a cycle of parents doesn't grant anything in itself.
+     *
+     * @param path
+     *            the entity types and permissions on the current chain of parents
+     */
+    private boolean isReachable(Class<?> entityType, String permission, Set<PlanKey> path) {
+        PlanKey key = new PlanKey(entityType, permission, 0);
+        if (reachable.contains(key)) {
+            return true;
+        }
+        AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(entityType);
+        if (metaData == null || !path.add(key)) {
+            return false;
+        }
+        if (path.size() > MAX_REACHABILITY_DEPTH || hasDirectGrant(metaData, entityType, permission)) {
+            markReachable(key);
+            return true;
+        }
+        for (ParentData parentData : metaData.getParentDataList()) {
+            if (parentData.hasPermission(permission)
+                    && isReachable(parentData.getPropertyType(), getParentPermission(parentData, permission), path)) {
+                markReachable(key);
+                return true;
+            }
+        }
+        path.remove(key);
+        return false;
+    }
+
+    private void markReachable(PlanKey key) {
+        if (isCached(key.permission)) {
+            reachable.add(key);
+        }
+    }
+
+    private boolean hasDirectGrant(AclEntityMetaData metaData, Class<?> entityType, String permission) {
+        return AclUser.class.isAssignableFrom(entityType) && aclMetaData.getSelfPermissions().hasPermission(permission)
+                || !compileOwners(metaData, permission, false).isEmpty()
+                || !compileOwnerGroups(metaData, permission).isEmpty()
+                || !compilePermissionLinks(metaData, permission).isEmpty();
+    }
+
+    private void compileOnClause(String permission, String prefixes, List<String> permissions,
+            List<String> permissionPatterns, List<String> excludedPermissionPatterns) {
+        if (prefixes.isEmpty()) {
+            // Create top level permission-checks
+            if (permission.equals(READ_PERMISSION)) {
+                excludedPermissionPatterns.add(prefixes + "%" + PERMISSION_PREFIX_DELIMITER + "%");
+            } else {
+                permissions.add(ALL_PERMISSION);
+                permissions.add(permission);
+            }
+        } else {
+            // Create child-level permission-checks
+            if (permission.equals(READ_PERMISSION)) {
+                permissionPatterns.add(prefixes + "%");
+            } else {
+                permissions.add(prefixes + ALL_PERMISSION);
+                permissions.add(prefixes + permission);
+            }
+
+            // create permission-checks recursively for upper child-levels
+            int index = prefixes.lastIndexOf(PERMISSION_PREFIX_DELIMITER, prefixes.length() - 2) + 1;
+            compileOnClause(permission, prefixes.substring(0, index), permissions, permissionPatterns,
+                    excludedPermissionPatterns);
+        }
+    }
+
+    private static class PlanKey {
+
+        private final Class<?> entityType;
+        private final String permission;
+        private final int depth;
+
+        PlanKey(Class<?> entityType, String permission, int depth) {
+            this.entityType = entityType;
+            this.permission = permission;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return depth == other.depth && entityType.equals(other.entityType) && permission.equals(other.permission);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * entityType.hashCode() + permission.hashCode()) + depth;
+        }
+    }
+}
@@ -23,13 +23,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.orm.jpa.persistenceunit.MutablePersistenceUnitInfo;
 import org.springframework.orm.jpa.persistenceunit.PersistenceUnitPostProcessor;
 
+import com.berrycloud.acl.domain.AclPermissionClosure;
 import com.berrycloud.acl.domain.AclRole;
 import com.berrycloud.acl.domain.AclUser;
 import com.berrycloud.acl.domain.SimpleAclRole;
 import com.berrycloud.acl.domain.SimpleAclUser;
 
 /**
- * PostProcessor for adding missing {@link AclUser} and {@link AclRole} domain classes to the Persistence MAnager.
+ * PostProcessor for adding missing {@link AclUser} and {@link AclRole} domain classes to the Persistence MAnager. If
+ * the {@link AclPredicateStrategy#CLOSURE} strategy is used, it also adds the {@link AclPermissionClosure} entity.
  *
  * @author István Rátkai (Selindek)
  */
@@ -37,6 +39,16 @@ public class AclPersistenceUnitPostProcessor implements PersistenceUnitPostProce
 
     private static Logger LOG = LoggerFactory.getLogger(AclPersistenceUnitPostProcessor.class);
 
+    private final boolean permissionClosure;
+
+    public AclPersistenceUnitPostProcessor() {
+        this(false);
+    }
+
+    public AclPersistenceUnitPostProcessor(boolean permissionClosure) {
+        this.permissionClosure = permissionClosure;
+    }
+
     @Override
     public void postProcessPersistenceUnitInfo(MutablePersistenceUnitInfo pui) {
         List<Class<?>> entityClasses = createClasses(pui);
@@ -50,6 +62,11 @@ public class AclPersistenceUnitPostProcessor implements PersistenceUnitPostProce
             pui.addManagedClassName(SimpleAclRole.class.getName());
             LOG.info("{} was added to managed entities.", SimpleAclRole.class);
         }
+
+        if (permissionClosure) {
+            pui.addManagedClassName(AclPermissionClosure.class.getName());
+            LOG.info("{} was added to managed entities.", AclPermissionClosure.class);
+        }
     }
 
     private static boolean missClass(List<Class<?>> entityClasses, Class<?> checkClass) {
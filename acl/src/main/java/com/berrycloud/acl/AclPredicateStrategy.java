@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+/**
+ * Defines the shape of the SQL the {@link AclUserPermissionSpecification} creates for the ACL checks. The strategy can
+ * be set by the following property:
+ *
+ * <pre>
+ * spring.data.jpa.acl.strategy = JOIN
+ * </pre>
+ *
+ * @author István Rátkai (Selindek)
+ */
+public enum AclPredicateStrategy {
+
+    /**
+     * All of the owner, owner-group, permission-link and parent paths are attached to the queried entity as LEFT
+     * JOINs. The query is turned into a DISTINCT query to remove the duplicates the joins produce. (Default)
+     */
+    JOIN,
+
+    /**
+     * Every grant path is evaluated as a correlated {@code EXISTS} sub-query. There are no joins on the queried entity
+     * and the query is NOT turned into a DISTINCT query. Usually it's much faster if the entities have many-to-many
+     * owners or parents.
+     */
+    EXISTS,
+
+    /**
+     * The permissions are materialized in a closure table (user, entity, permission) what is maintained by entity
+     * listeners. The check is a single semi-join against this table, so its cost doesn't depend on the depth of the
+     * parent hierarchy. The permissions what are not materialized are checked by the {@link #JOIN} strategy. See
+     * {@link AclPermissionClosureManager}.
+     */
+    CLOSURE,
+
+    /**
+     * The {@link #JOIN} or the {@link #EXISTS} strategy is selected for every queried entity by the sampled row counts
+     * of the entity and its collections on the grant paths: the joins are used only if they don't multiply the rows of
+     * a large table too much. See {@link AclStrategySelector}.
+     */
+    ADAPTIVE
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+import static com.berrycloud.acl.AclConstants.RECURSIVE_IDS_PARAMETER_PREFIX;
+import static com.berrycloud.acl.AclConstants.USER_ID_PARAMETER;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.HSQLDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.berrycloud.acl.data.AclMetaData;
+
+/**
+ * Evaluates self-referencing {@link com.berrycloud.acl.annotation.AclParent} properties (e.g. folder - parent folder)
+ * with a {@code WITH RECURSIVE} native query instead of unrolling the parent chain as joins. It removes the depth limit
+ * of these hierarchies.
+ * <p>
+ * A native query cannot be embedded into a Criteria query, so the evaluation is done in two steps: the ids of the
+ * entities the user has permission to without the self-referencing parents (seeds) are collected by a JPA query, then
+ * the seeds and all of their descendants are collected by the recursive query. The result is used as an IN predicate
+ * with a collection parameter. The collection is padded to the next power of two, so only a few different SQL
+ * statements are created. The result is bound to the current transaction and it's reused by the later queries of
+ * read-only transactions (e.g. by the count query of a page).
+ * <p>
+ * If the number of the ids exceeds the given limit (e.g. the 1000 elements of the IN lists of Oracle) the query fails
+ * with an {@link IllegalStateException}, because the result would depend on the size of the data. If it's enabled, the
+ * parents are unrolled as joins up to the maximum depth instead (with a warning). The parents are always unrolled if
+ * the entity is not mapped to a single table, or the dialect of the database is not known to support
+ * {@code WITH RECURSIVE} queries (H2, HSQLDB and PostgreSQL).
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclRecursiveParentEvaluator {
+
+    private static Logger LOG = LoggerFactory.getLogger(AclRecursiveParentEvaluator.class);
+
+    public static final int DEFAULT_MAX_IDS = 1000;
+
+    // An empty SQL means that the recursive query is not supported for the given properties
+    private static final String UNSUPPORTED = "";
+
+    private final EntityManager em;
+    private final AclMetaData aclMetaData;
+    private final int maxIds;
+    private final boolean unrollOnOverflow;
+    private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+    private final ConcurrentMap<String, String> sqlCache = new ConcurrentHashMap<>();
+
+    public AclRecursiveParentEvaluator(EntityManager em, AclMetaData aclMetaData) {
+        this(em, aclMetaData, DEFAULT_MAX_IDS);
+    }
+
+    /**
+     * @param em
+     * @param aclMetaData
+     * @param maxIds
+     *            the maximum number of the ids in the IN predicate
+     */
+    public AclRecursiveParentEvaluator(EntityManager em, AclMetaData aclMetaData, int maxIds) {
+        this(em, aclMetaData, maxIds, false);
+    }
+
+    /**
+     * @param em
+     * @param aclMetaData
+     * @param maxIds
+     *            the maximum number of the ids in the IN predicate
+     * @param unrollOnOverflow
+     *            unroll the parents up to the maximum depth if there are more ids than the limit (instead of failing)
+     */
+    public AclRecursiveParentEvaluator(EntityManager em, AclMetaData aclMetaData, int maxIds,
+            boolean unrollOnOverflow) {
+        this.em = em;
+        this.aclMetaData = aclMetaData;
+        this.maxIds = maxIds;
+        this.unrollOnOverflow = unrollOnOverflow;
+    }
+
+    /**
+     * Checks whether the given self-referencing parent properties of the given entity type can be evaluated by a
+     * recursive query.
+     */
+    public boolean isSupported(Class<?> entityType, List<String> propertyNames) {
+        return !UNSUPPORTED.equals(getSql(entityType, propertyNames));
+    }
+
+    /**
+     * Returns the ids of the entities selected by the seed query and the ids of all of their descendants via the given
+     * self-referencing parent properties. The result is bound to the current transaction.
+     *
+     * @param entityType
+     *            the type of the entities
+     * @param propertyNames
+     *            the self-referencing parent properties
+     * @param permission
+     *            the permission of the seed query
+     * @param seedQuery
+     *            query selecting the ids of the seed entities
+     * @param userId
+     *            the value of the user id parameter of the seed query
+     * @return the ids of the seeds and their descendants (converted to the type of the id attribute), or null if the
+     *         number of the ids exceeds the limit and the parents should be unrolled
+     * @throws IllegalStateException
+     *             if the number of the ids exceeds the limit and unrolling is not enabled
+     */
+    public List<Object> findDescendantIds(Class<?> entityType, List<String> propertyNames, String permission,
+            CriteriaQuery<Object> seedQuery, Serializable userId) {
+        DescendantIds descendantIds = getDescendantIds(true);
+        String key = getKey(entityType, propertyNames, permission, userId);
+        if (descendantIds != null && descendantIds.readOnly && descendantIds.ids.containsKey(key)) {
+            return descendantIds.ids.get(key);
+        }
+
+        List<Object> result = evaluate(entityType, propertyNames, seedQuery, userId);
+        if (descendantIds != null) {
+            descendantIds.ids.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name of the collection parameter of the ids evaluated by
+     * {@link #findDescendantIds(Class, List, String, CriteriaQuery, Serializable)} with the same arguments, or null if
+     * there is no transaction to keep the ids until the parameters of the query are bound. The names are assigned per
+     * transaction, so they don't accumulate.
+     */
+    public String getParameterName(Class<?> entityType, List<String> propertyNames, String permission,
+            Serializable userId) {
+        DescendantIds descendantIds = getDescendantIds(true);
+        if (descendantIds == null) {
+            return null;
+        }
+        String key = getKey(entityType, propertyNames, permission, userId);
+        String parameterName = descendantIds.parameterNames.get(key);
+        if (parameterName == null) {
+            parameterName = RECURSIVE_IDS_PARAMETER_PREFIX + descendantIds.parameterNames.size();
+            descendantIds.parameterNames.put(key, parameterName);
+            descendantIds.keys.put(parameterName, key);
+        }
+        return parameterName;
+    }
+
+    /**
+     * Binds the ids evaluated in the current transaction to the matching collection parameters of the given query.
+     */
+    public void bindParameters(Query query) {
+        DescendantIds descendantIds = getDescendantIds(false);
+        for (Parameter<?> parameter : query.getParameters()) {
+            String name = parameter.getName();
+            if (name == null || !name.startsWith(RECURSIVE_IDS_PARAMETER_PREFIX)) {
+                continue;
+            }
+            String key = descendantIds == null ? null : descendantIds.keys.get(name);
+            if (key == null) {
+                throw new IllegalStateException("The ids of the parameter '" + name + "' are not evaluated");
+            }
+            query.setParameter(name, pad(descendantIds.ids.get(key)));
+        }
+    }
+
+    private static String getKey(Class<?> entityType, List<String> propertyNames, String permission,
+            Serializable userId) {
+        return entityType.getName() + propertyNames + permission + ":" + userId;
+    }
+
+    private List<Object> evaluate(Class<?> entityType, List<String> propertyNames, CriteriaQuery<Object> seedQuery,
+            Serializable userId) {
+        TypedQuery<Object> query = em.createQuery(seedQuery);
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (USER_ID_PARAMETER.equals(parameter.getName())) {
+                query.setParameter(USER_ID_PARAMETER, userId);
+            }
+        }
+        List<Object> seedIds = query.setMaxResults(maxIds + 1).getResultList();
+        if (seedIds.isEmpty()) {
+            return seedIds;
+        }
+        if (seedIds.size() > maxIds) {
+            return overflow(entityType, "seeds");
+        }
+
+        List<?> ids = em.createNativeQuery(getSql(entityType, propertyNames)).setParameter("seeds", seedIds)
+                .setMaxResults(maxIds + 1).getResultList();
+        if (ids.size() > maxIds) {
+            return overflow(entityType, "descendants");
+        }
+        LOG.trace("{} seeds resulted {} descendants of {}", seedIds.size(), ids.size(), entityType);
+
+        // The native query returns the JDBC type of the id
+        Class<?> idType = aclMetaData.getAclEntityMetaData(entityType).getIdAttribute().getJavaType();
+        List<Object> result = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            result.add(conversionService.convert(id, idType));
+        }
+        return result;
+    }
+
+    private List<Object> overflow(Class<?> entityType, String what) {
+        String message = "More than " + maxIds + " " + what + " of " + entityType.getName()
+                + " were found by the recursive parent query";
+        if (!unrollOnOverflow) {
+            throw new IllegalStateException(message + ". Increase spring.data.jpa.acl.recursive-parents.max-ids or "
+                    + "enable spring.data.jpa.acl.recursive-parents.unroll-on-overflow");
+        }
+        LOG.warn("{}. The parents are unrolled up to the maximum depth.", message);
+        return null;
+    }
+
+    /**
+     * Pads the given ids to the next power of two (but not over the limit) by repeating the last id
+     */
+    private List<Object> pad(List<Object> ids) {
+        int size = Math.min(Integer.highestOneBit(Math.max(ids.size() - 1, 1)) << 1, maxIds);
+        if (ids.isEmpty() || ids.size() >= size) {
+            return ids;
+        }
+        List<Object> padded = new ArrayList<>(size);
+        padded.addAll(ids);
+        Object last = ids.get(ids.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    private DescendantIds getDescendantIds(boolean create) {
+        DescendantIds descendantIds = (DescendantIds) TransactionSynchronizationManager.getResource(this);
+        if (descendantIds == null && create && TransactionSynchronizationManager.isSynchronizationActive()) {
+            descendantIds = new DescendantIds(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            TransactionSynchronizationManager.bindResource(this, descendantIds);
+            TransactionSynchronizationManager.registerSynchronization(descendantIds);
+        }
+        return descendantIds;
+    }
+
+    private String getSql(Class<?> entityType, List<String> propertyNames) {
+        String key = entityType.getName() + propertyNames;
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            sql = createSql(entityType, propertyNames);
+            sqlCache.putIfAbsent(key, sql);
+        }
+        return sql;
+    }
+
+    private String createSql(Class<?> entityType, List<String> propertyNames) {
+        SessionFactoryImplementor sessionFactory;
+        try {
+            sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        } catch (PersistenceException e) {
+            LOG.warn("Recursive parent queries are supported only by Hibernate ... ignored");
+            return UNSUPPORTED;
+        }
+        Dialect dialect = sessionFactory.getDialect();
+        if (!(dialect instanceof H2Dialect || dialect instanceof HSQLDialect
+                || dialect instanceof PostgreSQL81Dialect)) {
+            LOG.warn("{} is not known to support WITH RECURSIVE queries. Recursive parent query is not supported.",
+                    dialect.getClass().getSimpleName());
+            return UNSUPPORTED;
+        }
+        ClassMetadata classMetadata = sessionFactory.getClassMetadata(entityType);
+        if (!(classMetadata instanceof SingleTableEntityPersister)) {
+            LOG.warn("{} is not mapped to a single table. Recursive parent query is not supported.", entityType);
+            return UNSUPPORTED;
+        }
+
+        // The persister returns the table and column names already quoted for the dialect
+        SingleTableEntityPersister persister = (SingleTableEntityPersister) classMetadata;
+        String tableName = persister.getTableName();
+        String[] idColumns = persister.getIdentifierColumnNames();
+        if (idColumns.length != 1) {
+            LOG.warn("{} has a composite id. Recursive parent query is not supported.", entityType);
+            return UNSUPPORTED;
+        }
+        String idColumn = idColumns[0];
+
+        StringBuilder joinCondition = new StringBuilder();
+        for (String propertyName : propertyNames) {
+            String[] parentColumns = persister.getPropertyColumnNames(propertyName);
+            if (parentColumns.length != 1) {
+                LOG.warn("{}.{} has multiple columns. Recursive parent query is not supported.", entityType,
+                        propertyName);
+                return UNSUPPORTED;
+            }
+            if (joinCondition.length() != 0) {
+                joinCondition.append(" OR ");
+            }
+            joinCondition.append("c.").append(parentColumns[0]).append(" = t.").append(idColumn);
+        }
+
+        // UNION (instead of UNION ALL) stops the recursion on loops
+        String sql = "WITH RECURSIVE acl_tree (" + idColumn + ") AS (SELECT " + idColumn + " FROM " + tableName
+                + " WHERE " + idColumn + " IN (:seeds) UNION SELECT c." + idColumn + " FROM " + tableName
+                + " c INNER JOIN acl_tree t ON " + joinCondition + ") SELECT " + idColumn + " FROM acl_tree";
+        LOG.debug("Recursive parent query of {}: {}", entityType, sql);
+        return sql;
+    }
+
+    /**
+     * The evaluated ids of the current transaction and the names of their parameters
+     */
+    private class DescendantIds extends TransactionSynchronizationAdapter {
+
+        private final Map<String, List<Object>> ids = new HashMap<>();
+        private final Map<String, String> parameterNames = new HashMap<>();
+        private final Map<String, String> keys = new HashMap<>();
+        private final boolean readOnly;
+
+        DescendantIds(boolean readOnly) {
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AclRecursiveParentEvaluator.this);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+/**
+ * Result of the role based checks of an entity type and permission for a set of authorities. See
+ * {@link AclRoleDecisionTable}.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public enum AclRoleDecision {
+
+    /**
+     * An {@code @AclRolePermission} grants the permission to all of the entities. No predicate is needed.
+     */
+    GRANT_ALL,
+
+    /**
+     * None of the {@code @AclRoleCondition} annotations allows the permission. No entity is accessible.
+     */
+    DENY,
+
+    /**
+     * The permission depends on the owners, permission-links and parents of the entities.
+     */
+    NEEDS_PREDICATE
+}
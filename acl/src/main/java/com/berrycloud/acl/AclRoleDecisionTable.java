@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.berrycloud.acl.data.AclEntityMetaData;
+import com.berrycloud.acl.data.AclMetaData;
+import com.berrycloud.acl.data.PermissionKey;
+import com.berrycloud.acl.data.RolePermissionData;
+
+/**
+ * Computes and caches the {@link AclRoleDecision}s of the {@code @AclRolePermission} and {@code @AclRoleCondition}
+ * annotations. The decisions are keyed by the authority fingerprint of the principal (see
+ * {@link AclUtils#getAuthorityFingerprint(com.berrycloud.acl.data.AuthorityRegistry)}), the entity type and the
+ * permission, so the role checks of a query cost a single map lookup after the first one.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclRoleDecisionTable {
+
+    private static Logger LOG = LoggerFactory.getLogger(AclRoleDecisionTable.class);
+
+    private final AclMetaData aclMetaData;
+
+    private final ConcurrentMap<DecisionKey, AclRoleDecision> decisionCache = new ConcurrentHashMap<>();
+
+    public AclRoleDecisionTable(AclMetaData aclMetaData) {
+        this.aclMetaData = aclMetaData;
+    }
+
+    /**
+     * Returns the role decision of the given entity type and permission for the given authority fingerprint.
+     *
+     * @param fingerprint
+     *            the authority fingerprint of the principal. It must not be modified after this call.
+     * @param entityType
+     *            the type of the checked entity
+     * @param permission
+     *            the checked permission
+     * @return the decision. Never null.
+     */
+    public AclRoleDecision getDecision(BitSet fingerprint, Class<?> entityType, PermissionKey permission) {
+        if (!permission.isInterned()) {
+            // Only the declared permissions are cached, the others are supplied by the callers
+            return decide(fingerprint, entityType, permission);
+        }
+        DecisionKey key = new DecisionKey(fingerprint, entityType, permission.getIndex());
+        AclRoleDecision decision = decisionCache.get(key);
+        if (decision == null) {
+            decision = decide(fingerprint, entityType, permission);
+            AclRoleDecision existingDecision = decisionCache.putIfAbsent(key, decision);
+            if (existingDecision != null) {
+                decision = existingDecision;
+            }
+        }
+        return decision;
+    }
+
+    private AclRoleDecision decide(BitSet fingerprint, Class<?> entityType, PermissionKey permission) {
+        AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(entityType);
+        AclRoleDecision decision = AclRoleDecision.NEEDS_PREDICATE;
+        if (metaData != null) {
+            if (matches(metaData.getRolePermissionList(), fingerprint, permission)) {
+                decision = AclRoleDecision.GRANT_ALL;
+            } else if (!matches(metaData.getRoleConditionList(), fingerprint, permission)) {
+                decision = AclRoleDecision.DENY;
+            }
+        }
+        LOG.trace("Role decision of {} for '{}' permission and {} authorities: {}", entityType, permission,
+                fingerprint, decision);
+        return decision;
+    }
+
+    private boolean matches(List<RolePermissionData> roleDataList, BitSet fingerprint, PermissionKey permission) {
+        for (RolePermissionData roleData : roleDataList) {
+            if (roleData.hasPermission(permission) && roleData.hasAnyAuthority(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class DecisionKey {
+
+        private final BitSet fingerprint;
+        private final Class<?> entityType;
+        private final int permissionIndex;
+
+        DecisionKey(BitSet fingerprint, Class<?> entityType, int permissionIndex) {
+            this.fingerprint = fingerprint;
+            this.entityType = entityType;
+            this.permissionIndex = permissionIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DecisionKey)) {
+                return false;
+            }
+            DecisionKey other = (DecisionKey) o;
+            return permissionIndex == other.permissionIndex && entityType.equals(other.entityType)
+                    && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * fingerprint.hashCode() + entityType.hashCode()) + permissionIndex;
+        }
+    }
+}
@@ -15,8 +15,11 @@
  */
 package com.berrycloud.acl;
 
+import javax.persistence.Query;
+import javax.persistence.criteria.CommonAbstractCriteria;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
@@ -26,6 +29,30 @@ public interface AclSpecification extends Specification<Object> {
 
     Predicate toPredicate(Root<?> root, CriteriaQuery<?> query, CriteriaBuilder cb, String permission);
 
+    /**
+     * Creates the permission predicate of the given {@link From} as a correlated {@code EXISTS} sub-query. Unlike
+     * {@link #toPredicate(Root, CriteriaQuery, CriteriaBuilder, String)} it doesn't add any joins to the given
+     * {@link From} and doesn't turn the query into a DISTINCT query, so it can be used in the selection too. (E.g. in a
+     * CASE expression.)
+     *
+     * @param from
+     * @param criteria
+     *            the query or sub-query of the given {@link From}
+     * @param cb
+     * @param permission
+     * @return
+     */
+    Predicate toExistsPredicate(From<?, ?> from, CommonAbstractCriteria criteria, CriteriaBuilder cb,
+            String permission);
+
+    /**
+     * Binds the parameters of the ACL predicates (e.g. the id of the current user) to the given query. It must be
+     * called on every query created from a criteria what contains a predicate of this specification.
+     *
+     * @param query
+     */
+    void bindParameters(Query query);
+
     /**
      * Checks whether this new entity can be created based on the Acl rules. (Does the current user have create
      * permission on this entity type or not.)
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.PluralAttribute;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.berrycloud.acl.data.OwnerGroupPlan;
+import com.berrycloud.acl.data.OwnerPlan;
+import com.berrycloud.acl.data.ParentPlan;
+import com.berrycloud.acl.data.PermissionLinkPlan;
+import com.berrycloud.acl.data.PermissionPlan;
+
+/**
+ * Selects the {@link AclPredicateStrategy} of the {@link AclPredicateStrategy#ADAPTIVE} strategy for every ACL
+ * predicate from lightweight statistics of the database: the row counts of the entities and the average number of the
+ * elements of the collections on the grant paths (owner collections, permission-links, parent collections).
+ * <p>
+ * The {@link AclPredicateStrategy#JOIN} strategy multiplies every row of the queried entity by the elements of all of
+ * its joined collections, so it's used only if the estimated number of the joined rows per entity is under the limit
+ * or the entity table is small. Otherwise the {@link AclPredicateStrategy#EXISTS} strategy is used. The statistics are
+ * sampled by count queries when they are needed first time, and they are sampled again after the given interval.
+ *
+ * <pre>
+ * spring.data.jpa.acl.strategy = ADAPTIVE
+ * spring.data.jpa.acl.adaptive.sample-interval = 600000
+ * spring.data.jpa.acl.adaptive.max-join-fan-out = 10
+ * spring.data.jpa.acl.adaptive.min-row-count = 10000
+ * </pre>
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclStrategySelector {
+
+    private static Logger LOG = LoggerFactory.getLogger(AclStrategySelector.class);
+
+    public static final long DEFAULT_SAMPLE_INTERVAL = 600000;
+
+    public static final double DEFAULT_MAX_JOIN_FAN_OUT = 10;
+
+    public static final long DEFAULT_MIN_ROW_COUNT = 10000;
+
+    private final EntityManager em;
+    private final long sampleInterval;
+    private final double maxJoinFanOut;
+    private final long minRowCount;
+
+    // The sampled row counts of the entities (key: entity name) and collections (key: entity name + property name)
+    private final ConcurrentMap<String, Sample> samples = new ConcurrentHashMap<>();
+
+    /**
+     * @param em
+     * @param sampleInterval
+     *            the time in milliseconds after the statistics are sampled again
+     * @param maxJoinFanOut
+     *            the maximum estimated number of the joined rows per entity for the JOIN strategy
+     * @param minRowCount
+     *            the entities with fewer rows are always checked by the JOIN strategy
+     */
+    public AclStrategySelector(EntityManager em, long sampleInterval, double maxJoinFanOut, long minRowCount) {
+        this.em = em;
+        this.sampleInterval = sampleInterval;
+        this.maxJoinFanOut = maxJoinFanOut;
+        this.minRowCount = minRowCount;
+    }
+
+    /**
+     * Selects the strategy for the given plan.
+     *
+     * @param plan
+     *            the plan of the queried entity and permission
+     * @return {@link AclPredicateStrategy#JOIN} or {@link AclPredicateStrategy#EXISTS}
+     */
+    public AclPredicateStrategy selectStrategy(PermissionPlan plan) {
+        Class<?> entityType = plan.getEntityType();
+        long rowCount = getRowCount(entityType);
+        if (rowCount < minRowCount) {
+            LOG.trace("Selected JOIN strategy for {} of {} rows", entityType, rowCount);
+            return AclPredicateStrategy.JOIN;
+        }
+        double fanOut = getJoinFanOut(plan);
+        AclPredicateStrategy strategy = fanOut > maxJoinFanOut ? AclPredicateStrategy.EXISTS
+                : AclPredicateStrategy.JOIN;
+        LOG.trace("Selected {} strategy for {} of {} rows with {} joined rows per entity", strategy, entityType,
+                rowCount, fanOut);
+        return strategy;
+    }
+
+    /**
+     * Estimates the number of the rows the joins of the JOIN strategy produce from a single row of the entity of the
+     * given plan. The joined collections of the same row multiply each other.
+     */
+    private double getJoinFanOut(PermissionPlan plan) {
+        Class<?> entityType = plan.getEntityType();
+        double fanOut = 1;
+        for (OwnerPlan ownerPlan : plan.getOwners()) {
+            fanOut *= getFanOut(entityType, ownerPlan.getPropertyName());
+        }
+        for (OwnerGroupPlan ownerGroupPlan : plan.getOwnerGroups()) {
+            fanOut *= getOwnerGroupFanOut(entityType, ownerGroupPlan);
+        }
+        for (PermissionLinkPlan permissionLinkPlan : plan.getPermissionLinks()) {
+            String propertyName = permissionLinkPlan.getPropertyName();
+            Class<?> linkType = getTargetType(entityType, propertyName);
+            double linkFanOut = getFanOut(entityType, propertyName);
+            for (OwnerPlan ownerPlan : permissionLinkPlan.getOwners()) {
+                linkFanOut *= getFanOut(linkType, ownerPlan.getPropertyName());
+            }
+            for (OwnerGroupPlan ownerGroupPlan : permissionLinkPlan.getOwnerGroups()) {
+                linkFanOut *= getOwnerGroupFanOut(linkType, ownerGroupPlan);
+            }
+            fanOut *= linkFanOut;
+        }
+        for (ParentPlan parentPlan : plan.getParents()) {
+            fanOut *= getFanOut(entityType, parentPlan.getPropertyName()) * getJoinFanOut(parentPlan.getPlan());
+        }
+        return fanOut;
+    }
+
+    private double getOwnerGroupFanOut(Class<?> entityType, OwnerGroupPlan ownerGroupPlan) {
+        Class<?> groupType = getTargetType(entityType, ownerGroupPlan.getPropertyName());
+        double fanOut = getFanOut(entityType, ownerGroupPlan.getPropertyName());
+        for (OwnerPlan ownerPlan : ownerGroupPlan.getOwners()) {
+            fanOut *= getFanOut(groupType, ownerPlan.getPropertyName());
+        }
+        return fanOut;
+    }
+
+    /**
+     * Returns the average number of the elements of the given collection property (at least 1), or 1 if the property
+     * is not a collection.
+     */
+    private double getFanOut(Class<?> entityType, String propertyName) {
+        if (!(getAttribute(entityType, propertyName) instanceof PluralAttribute)) {
+            return 1;
+        }
+        long rowCount = getRowCount(entityType);
+        long joinCount = getJoinCount(entityType, propertyName);
+        return rowCount == 0 ? 1 : Math.max(1, (double) joinCount / rowCount);
+    }
+
+    private long getRowCount(final Class<?> entityType) {
+        return getSample(entityType.getName(), new CountQuery() {
+
+            @Override
+            public CriteriaQuery<Long> create(CriteriaBuilder cb) {
+                CriteriaQuery<Long> query = cb.createQuery(Long.class);
+                return query.select(cb.count(query.from(entityType)));
+            }
+        });
+    }
+
+    private long getJoinCount(final Class<?> entityType, final String propertyName) {
+        return getSample(entityType.getName() + "." + propertyName, new CountQuery() {
+
+            @Override
+            public CriteriaQuery<Long> create(CriteriaBuilder cb) {
+                CriteriaQuery<Long> query = cb.createQuery(Long.class);
+                Root<?> root = query.from(entityType);
+                return query.select(cb.count(root.join(propertyName)));
+            }
+        });
+    }
+
+    private long getSample(String key, CountQuery countQuery) {
+        long now = System.currentTimeMillis();
+        Sample sample = samples.get(key);
+        if (sample == null || sample.sampledAt + sampleInterval <= now) {
+            long count;
+            try {
+                count = em.createQuery(countQuery.create(em.getCriteriaBuilder())).getSingleResult();
+            } catch (PersistenceException e) {
+                LOG.warn("Cannot sample the row count of {}: {}", key, e.getMessage());
+                count = 0;
+            }
+            LOG.debug("Sampled row count of {}: {}", key, count);
+            sample = new Sample(count, now);
+            samples.put(key, sample);
+        }
+        return sample.count;
+    }
+
+    private Attribute<?, ?> getAttribute(Class<?> entityType, String propertyName) {
+        ManagedType<?> managedType = em.getMetamodel().managedType(entityType);
+        return managedType.getAttribute(propertyName);
+    }
+
+    /**
+     * Returns the type of the given property. (The element type if the property is a collection)
+     */
+    private Class<?> getTargetType(Class<?> entityType, String propertyName) {
+        Attribute<?, ?> attribute = getAttribute(entityType, propertyName);
+        if (attribute instanceof PluralAttribute) {
+            return ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType();
+        }
+        return attribute.getJavaType();
+    }
+
+    private interface CountQuery {
+
+        CriteriaQuery<Long> create(CriteriaBuilder cb);
+    }
+
+    private static class Sample {
+
+        private final long count;
+        private final long sampledAt;
+
+        Sample(long count, long sampledAt) {
+            this.count = count;
+            this.sampledAt = sampledAt;
+        }
+    }
+}
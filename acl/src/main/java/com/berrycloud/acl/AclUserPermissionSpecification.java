@@ -17,38 +17,56 @@ package com.berrycloud.acl;
 
 import com.berrycloud.acl.annotation.AclOwner;
 import com.berrycloud.acl.annotation.AclParent;
+import com.berrycloud.acl.annotation.AclStrategy;
 import com.berrycloud.acl.data.AclEntityMetaData;
 import com.berrycloud.acl.data.AclMetaData;
 import com.berrycloud.acl.data.CreatePermissionData;
-import com.berrycloud.acl.data.OwnerData;
-import com.berrycloud.acl.data.ParentData;
-import com.berrycloud.acl.data.PermissionLinkData;
-import com.berrycloud.acl.data.RolePermissionData;
-import com.berrycloud.acl.domain.AclUser;
+import com.berrycloud.acl.data.OwnerGroupPlan;
+import com.berrycloud.acl.data.OwnerPlan;
+import com.berrycloud.acl.data.ParentPlan;
+import com.berrycloud.acl.data.PermissionKey;
+import com.berrycloud.acl.data.PermissionLinkPlan;
+import com.berrycloud.acl.data.PermissionPlan;
+import com.berrycloud.acl.domain.AclPermissionClosure;
+import com.berrycloud.acl.domain.StructuredPermissionLink;
+import com.berrycloud.acl.repository.AclQueryUtils;
 import com.berrycloud.acl.security.AclUserDetails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import javax.persistence.Parameter;
+import javax.persistence.Query;
+import javax.persistence.criteria.CommonAbstractCriteria;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Selection;
+import javax.persistence.criteria.Subquery;
 import javax.persistence.metamodel.SingularAttribute;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
-import static com.berrycloud.acl.AclConstants.ALL_PERMISSION;
 import static com.berrycloud.acl.AclConstants.CREATE_PERMISSION;
-import static com.berrycloud.acl.AclConstants.PERMISSION_PREFIX_DELIMITER;
+import static com.berrycloud.acl.AclConstants.DELETE_PERMISSION;
 import static com.berrycloud.acl.AclConstants.READ_PERMISSION;
+import static com.berrycloud.acl.AclConstants.UPDATE_PERMISSION;
+import static com.berrycloud.acl.AclConstants.USER_ID_PARAMETER;
 
 /**
  * Implementation of the {@link AclSpecification}.
@@ -69,12 +87,59 @@ public class AclUserPermissionSpecification implements AclSpecification {
      */
     private final int maxDepth;
 
+    /**
+     * The shape of the created predicates. See {@link AclPredicateStrategy}
+     */
+    private final AclPredicateStrategy strategy;
+
+    private final AclPermissionPlanner permissionPlanner;
+
+    private final AclRoleDecisionTable roleDecisionTable;
+
+    /**
+     * Maintainer of the closure table of the {@link AclPredicateStrategy#CLOSURE} strategy
+     */
+    private AclPermissionClosureManager permissionClosureManager;
+
+    /**
+     * Evaluator of the self-referencing parents. If null the parents are unrolled up to the maximum depth.
+     */
+    private AclRecursiveParentEvaluator recursiveParentEvaluator;
+
+    /**
+     * Selector of the strategy of the {@link AclPredicateStrategy#ADAPTIVE} strategy
+     */
+    private AclStrategySelector strategySelector;
+
     public AclUserPermissionSpecification(AclUtils aclUtils,
                                           AclMetaData aclMetaData,
                                           @Value("${spring.data.jpa.acl.max-depth:2}") int maxDepth) {
+        this(aclUtils, aclMetaData, maxDepth, AclPredicateStrategy.JOIN);
+    }
+
+    public AclUserPermissionSpecification(AclUtils aclUtils,
+                                          AclMetaData aclMetaData,
+                                          @Value("${spring.data.jpa.acl.max-depth:2}") int maxDepth,
+                                          @Value("${spring.data.jpa.acl.strategy:JOIN}") AclPredicateStrategy strategy) {
         this.aclUtils = aclUtils;
         this.aclMetaData = aclMetaData;
         this.maxDepth = maxDepth;
+        this.strategy = strategy;
+        this.permissionPlanner = new AclPermissionPlanner(aclMetaData, maxDepth);
+        this.permissionPlanner.precompile(Arrays.asList(READ_PERMISSION, UPDATE_PERMISSION, DELETE_PERMISSION));
+        this.roleDecisionTable = new AclRoleDecisionTable(aclMetaData);
+    }
+
+    public void setPermissionClosureManager(AclPermissionClosureManager permissionClosureManager) {
+        this.permissionClosureManager = permissionClosureManager;
+    }
+
+    public void setRecursiveParentEvaluator(AclRecursiveParentEvaluator recursiveParentEvaluator) {
+        this.recursiveParentEvaluator = recursiveParentEvaluator;
+    }
+
+    public void setStrategySelector(AclStrategySelector strategySelector) {
+        this.strategySelector = strategySelector;
     }
 
     @Override
@@ -92,15 +157,29 @@ public class AclUserPermissionSpecification implements AclSpecification {
         if (selection != null && selection instanceof From) {
             from = (From<Object, Object>) selection;
         }
+        return createPredicate(from, query, cb, permission, false);
+    }
 
-        // Rules from @AclRolePermission annotations
-        if (hasRolePermission(from, permission)) {
+    @Override
+    public Predicate toExistsPredicate(From<?, ?> from, CommonAbstractCriteria criteria, CriteriaBuilder cb,
+                                       String permission) {
+        return createPredicate(from, criteria, cb, permission, true);
+    }
+
+    /**
+     * Creates the permission predicate of the given {@link From}. If the predicate is correlated then all of the joins
+     * are created in a correlated sub-query, so the given criteria is not modified.
+     */
+    private Predicate createPredicate(From<?, ?> from, CommonAbstractCriteria criteria, CriteriaBuilder cb,
+                                      String permission, boolean correlated) {
+
+        // Rules from @AclRolePermission and @AclRoleCondition annotations
+        AclRoleDecision roleDecision = getRoleDecision(from.getJavaType(), permission);
+        if (roleDecision == AclRoleDecision.GRANT_ALL) {
             LOG.trace("Access granted via @AclRolePermission: {}", aclUtils.getUsername());
             return cb.conjunction();
         }
-
-        // Rules from @AclRoleCondition annotations
-        if (!hasRoleCondition(from, permission)) {
+        if (roleDecision == AclRoleDecision.DENY) {
             LOG.trace("Access denied via @AclRoleCondition: {}", aclUtils.getUsername());
             return cb.disjunction();
         }
@@ -112,89 +191,205 @@ public class AclUserPermissionSpecification implements AclSpecification {
             return cb.disjunction();
         }
 
-        LOG.trace("Creating predicates for {}", from.getJavaType());
+        PermissionPlan plan = permissionPlanner.getPermissionPlan(from.getJavaType(), permission);
+        if (plan.isEmpty()) {
+            LOG.trace("No permissions found");
+            return cb.disjunction();
+        }
+
+        // The user id is bound as a parameter, so the query is the same for all users
+        Expression<?> userId = cb.parameter(aclUserDetails.getUserId().getClass(), USER_ID_PARAMETER);
+
+        AclPredicateStrategy planStrategy = selectStrategy(plan);
+        if (planStrategy == AclPredicateStrategy.CLOSURE && permissionClosureManager != null
+                && permissionClosureManager.isMaterialized(from.getJavaType(), permission)) {
+            LOG.trace("Creating closure predicate for {}", from.getJavaType());
+            return createClosurePredicate(from, criteria, cb, userId, permission);
+        }
+
+        LOG.trace("Creating predicates for {} by {} strategy", from.getJavaType(), planStrategy);
+
+        // The collection and permission-link joins created by the ACL predicates of this query
+        Set<Join<?, ?>> aclJoins = newAclJoins();
+
+        if (correlated) {
+            CorrelatedSubquery subquery = new CorrelatedSubquery(from, criteria);
+            return subquery.exists(cb,
+                    toSubPredicate(subquery.getRoot(), subquery.getSubquery(), cb, planStrategy, aclJoins, userId,
+                            plan));
+        }
+
+        if (planStrategy != AclPredicateStrategy.EXISTS && criteria instanceof CriteriaQuery) {
+            // The joins multiply the rows
+            ((CriteriaQuery<?>) criteria).distinct(true);
+        }
+        return toSubPredicate(from, criteria, cb, planStrategy, aclJoins, userId, plan);
+    }
+
+    private static Set<Join<?, ?>> newAclJoins() {
+        return Collections.newSetFromMap(new IdentityHashMap<Join<?, ?>, Boolean>());
+    }
+
+    /**
+     * Returns the strategy of the predicates of the given plan: the strategy of the {@link AclStrategy} annotation of
+     * the entity or the global strategy. The {@link AclPredicateStrategy#ADAPTIVE} strategy is resolved by the
+     * {@link AclStrategySelector} (or falls back to the {@link AclPredicateStrategy#JOIN} strategy if there is no
+     * selector).
+     */
+    private AclPredicateStrategy selectStrategy(PermissionPlan plan) {
+        AclPredicateStrategy entityStrategy = aclMetaData.getAclEntityMetaData(plan.getEntityType()).getStrategy();
+        AclPredicateStrategy planStrategy = entityStrategy == null ? strategy : entityStrategy;
+        if (planStrategy != AclPredicateStrategy.ADAPTIVE) {
+            return planStrategy;
+        }
+        return strategySelector == null ? AclPredicateStrategy.JOIN : strategySelector.selectStrategy(plan);
+    }
 
-        query.distinct(true);
-        return toSubPredicate(from, cb, aclUserDetails.getUserId(), permission, maxDepth);
+    /**
+     * Replays the given plan against the given {@link From}
+     */
+    private Predicate toSubPredicate(From<?, ?> from, CommonAbstractCriteria criteria, CriteriaBuilder cb,
+                                     AclPredicateStrategy strategy, Set<Join<?, ?>> aclJoins, Expression<?> userId,
+                                     PermissionPlan plan) {
+        if (recursiveParentEvaluator != null && plan.hasSelfReferencingParent()) {
+            Predicate recursivePredicate = createRecursivePredicate(from, cb, strategy, userId, plan);
+            if (recursivePredicate != null) {
+                return recursivePredicate;
+            }
+        }
+        return toSubPredicate(from, criteria, cb, strategy, aclJoins, userId, plan, false);
     }
 
-    private Predicate toSubPredicate(From<?, ?> from, CriteriaBuilder cb, Serializable userId, String permission,
-                                     int depth) {
-        LOG.trace("Checking {} for '{}' permission", from.getJavaType(), permission);
+    private Predicate toSubPredicate(From<?, ?> from, CommonAbstractCriteria criteria, CriteriaBuilder cb,
+                                     AclPredicateStrategy strategy, Set<Join<?, ?>> aclJoins, Expression<?> userId,
+                                     PermissionPlan plan, boolean skipSelfReferencing) {
+        LOG.trace("Checking {} for '{}' permission", from.getJavaType(), plan.getPermission());
 
         List<Predicate> predicates = new ArrayList<>();
 
-        predicates.addAll(createSelfPredicates(from, cb, userId, permission));
-        predicates.addAll(createOwnerPredicates(from, cb, userId, permission, false));
-        predicates.addAll(createOwnerGroupPredicates(from, cb, userId, permission));
-        predicates.addAll(createPermissionLinkPredicates(from, cb, userId, permission));
+        predicates.addAll(createSelfPredicates(from, cb, userId, plan));
+        predicates.addAll(createOwnerPredicates(from, criteria, cb, strategy, aclJoins, userId, plan.getOwners()));
+        predicates.addAll(
+                createOwnerGroupPredicates(from, criteria, cb, strategy, aclJoins, userId, plan.getOwnerGroups()));
+        predicates.addAll(createPermissionLinkPredicates(from, criteria, cb, strategy, aclJoins, userId,
+                plan.getPermissionLinks()));
 
         // Adding predicates recursively for parent entities
-        if (depth > 0) {
-            predicates.addAll(createParentPredicates(from, cb, userId, permission, depth));
-        }
+        predicates.addAll(createParentPredicates(from, criteria, cb, strategy, aclJoins, userId, plan.getParents(),
+                skipSelfReferencing));
 
         if (predicates.isEmpty()) {
             LOG.trace("No permissions found");
         }
 
-        return cb.or(predicates.toArray(new Predicate[predicates.size()]));
+        return or(cb, predicates);
     }
 
-    /**
-     * Checks if the current user has any role which grants automatic permission for this domain type.
-     *
-     * @param from
-     * @param permission
-     * @return
-     */
-    private boolean hasRolePermission(From<?, ?> from, String permission) {
-        return hasRolePermission(aclMetaData.getAclEntityMetaData(from.getJavaType()), permission);
+    static Predicate or(CriteriaBuilder cb, List<Predicate> predicates) {
+        return cb.or(predicates.toArray(new Predicate[predicates.size()]));
     }
 
     /**
-     * Checks if the current user has any role which grants automatic permission for this domain type.
-     *
-     * @param metaData
-     * @param permission
-     * @return
+     * Evaluates the self-referencing parents of the plan by a recursive query. The entities the user has permission to
+     * without these parents are the seeds, and all of their descendants inherit the permission. Returns null if the
+     * recursive query is not supported for this entity or the number of the ids exceeds the limit of the evaluator.
      */
-    private boolean hasRolePermission(AclEntityMetaData metaData, String permission) {
-        for (RolePermissionData rolePermissionData : metaData.getRolePermissionList()) {
-            if (aclUtils.hasAnyAuthorities(rolePermissionData.getAuthorities())
-                    && rolePermissionData.hasPermission(permission)) {
-                return true;
+    private Predicate createRecursivePredicate(From<?, ?> from, CriteriaBuilder cb, AclPredicateStrategy strategy,
+                                               Expression<?> userId, PermissionPlan plan) {
+        List<String> propertyNames = new ArrayList<>();
+        for (ParentPlan parentPlan : plan.getParents()) {
+            if (parentPlan.isSelfReferencing()) {
+                propertyNames.add(parentPlan.getPropertyName());
             }
         }
-        return false;
+        Class<?> entityType = plan.getEntityType();
+        if (!recursiveParentEvaluator.isSupported(entityType, propertyNames)) {
+            return null;
+        }
+
+        LOG.trace("Adding recursive 'parent' predicate for {}.{}", entityType, propertyNames);
+        CriteriaQuery<Object> seedQuery = cb.createQuery(Object.class);
+        Root<?> seedRoot = seedQuery.from(entityType);
+        seedQuery.select(seedRoot.get(plan.getIdAttribute())).distinct(true);
+        seedQuery.where(toSubPredicate(seedRoot, seedQuery, cb, strategy, newAclJoins(), userId, plan, true));
+
+        Serializable userIdValue = aclUtils.getAclUserDetails().getUserId();
+        List<Object> ids = recursiveParentEvaluator.findDescendantIds(entityType, propertyNames, plan.getPermission(),
+                seedQuery, userIdValue);
+        if (ids == null) {
+            // Too many ids for an IN predicate, the parents are unrolled (unroll-on-overflow)
+            return null;
+        }
+        if (ids.isEmpty()) {
+            return cb.disjunction();
+        }
+        String parameterName = recursiveParentEvaluator.getParameterName(entityType, propertyNames,
+                plan.getPermission(), userIdValue);
+        if (parameterName == null) {
+            // There is no transaction to keep the ids until the parameters are bound
+            return from.get(plan.getIdAttribute()).in(ids);
+        }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ParameterExpression<Collection<?>> idsParameter = (ParameterExpression) cb.parameter(Collection.class,
+                parameterName);
+        return from.get(plan.getIdAttribute()).in(idsParameter);
     }
 
     /**
-     * Checks role preconditions for the current user.
-     *
-     * @param from
-     * @param permission
-     * @return
+     * Creates a semi-join against the closure table of the {@link AclPredicateStrategy#CLOSURE} strategy
      */
-    private boolean hasRoleCondition(From<?, ?> from, String permission) {
-        return hasRoleCondition(aclMetaData.getAclEntityMetaData(from.getJavaType()), permission);
+    private Predicate createClosurePredicate(From<?, ?> from, CommonAbstractCriteria criteria, CriteriaBuilder cb,
+                                             Expression<?> userId, String permission) {
+        SingularAttribute<? super Object, ?> idAttribute = aclMetaData.getAclEntityMetaData(from.getJavaType())
+                .getIdAttribute();
+        Class<?> idType = idAttribute.getJavaType();
+
+        Subquery<Object> subquery = criteria.subquery(Object.class);
+        Root<AclPermissionClosure> closure = subquery.from(AclPermissionClosure.class);
+        Path<Object> closureId = closure.get("id");
+        // The closure table stores the user ids as strings, so the parameter is cast (the column remains indexable)
+        subquery.where(cb.equal(closureId.get("userId"), userId.as(String.class)),
+                cb.equal(closureId.get("entityType"), from.getJavaType().getName()),
+                cb.equal(closureId.get("permission"), permission));
+
+        // Numeric and String primary keys are compared with a column of the same type, so their index can be used
+        if (AclPermissionClosure.isNumericIdType(idType)) {
+            subquery.select(closure.get("entityNumId"));
+            return from.get(idAttribute).in(subquery);
+        }
+        subquery.select(closureId.get("entityId"));
+        if (idType == String.class) {
+            return from.get(idAttribute).in(subquery);
+        }
+        // Other ids are compared by their String representation
+        return from.get(idAttribute).as(String.class).in(subquery);
     }
 
     /**
-     * Checks role preconditions for the current user.
-     *
-     * @param metaData
-     * @param permission
-     * @return
+     * Returns the decision of the @AclRolePermission and @AclRoleCondition annotations for the current user.
      */
-    private boolean hasRoleCondition(AclEntityMetaData metaData, String permission) {
-        for (RolePermissionData roleConditionData : metaData.getRoleConditionList()) {
-            if (aclUtils.hasAnyAuthorities(roleConditionData.getAuthorities())
-                    && roleConditionData.hasPermission(permission)) {
-                return true;
+    private AclRoleDecision getRoleDecision(Class<?> entityType, String permission) {
+        PermissionKey permissionKey = aclMetaData.getPermissionRegistry().findPermission(permission);
+        BitSet fingerprint = aclUtils.getAuthorityFingerprint(aclMetaData.getAuthorityRegistry());
+        return roleDecisionTable.getDecision(fingerprint, entityType, permissionKey);
+    }
+
+    @Override
+    public void bindParameters(Query query) {
+        AclUserDetails aclUserDetails = aclUtils.getAclUserDetails();
+        if (aclUserDetails == null) {
+            // The predicates of non-Acl users have no parameters
+            return;
+        }
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (USER_ID_PARAMETER.equals(parameter.getName())) {
+                query.setParameter(USER_ID_PARAMETER, aclUserDetails.getUserId());
+                break;
             }
         }
-        return false;
+        if (recursiveParentEvaluator != null) {
+            recursiveParentEvaluator.bindParameters(query);
+        }
     }
 
     @Override
@@ -209,46 +404,42 @@ public class AclUserPermissionSpecification implements AclSpecification {
                 return true;
             }
         }
-        return hasRolePermission(metaData, CREATE_PERMISSION);
+        return getRoleDecision(newEntity.getClass(), CREATE_PERMISSION) == AclRoleDecision.GRANT_ALL;
     }
 
     /**
      * Creates a predicate for current user to its own entity
      */
-    private List<Predicate> createSelfPredicates(From<?, ?> from, CriteriaBuilder cb, Serializable userId,
-                                                 String permission) {
+    private List<Predicate> createSelfPredicates(From<?, ?> from, CriteriaBuilder cb, Expression<?> userId,
+                                                 PermissionPlan plan) {
         List<Predicate> predicates = new ArrayList<>();
-        if (AclUser.class.isAssignableFrom(from.getJavaType())) {
-            if (aclMetaData.getSelfPermissions().hasPermission(permission)) {
-                LOG.trace("Adding 'self' predicate for {}", from.getJavaType());
-                SingularAttribute<? super Object, ?> idAttribute = aclMetaData.getAclEntityMetaData(from.getJavaType())
-                        .getIdAttribute();
-                predicates.add(cb.equal(from.get(idAttribute), userId));
-            }
+        if (plan.isSelf()) {
+            LOG.trace("Adding 'self' predicate for {}", from.getJavaType());
+            predicates.add(cb.equal(from.get(plan.getIdAttribute()), userId));
         }
         return predicates;
     }
 
     /**
      * Creates predicates for direct owners defined by {@link AclOwner} annotation
-     *
-     * @param permission
      */
-    private List<Predicate> createOwnerPredicates(From<?, ?> from, CriteriaBuilder cb, Serializable userId,
-                                                  String permission, boolean ownerGroup) {
+    private List<Predicate> createOwnerPredicates(From<?, ?> from, CommonAbstractCriteria criteria,
+                                                  CriteriaBuilder cb, AclPredicateStrategy strategy,
+                                                  Set<Join<?, ?>> aclJoins, Expression<?> userId,
+                                                  List<OwnerPlan> owners) {
         List<Predicate> predicates = new ArrayList<>();
-        AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(from.getJavaType());
-        for (OwnerData ownerData : metaData.getOwnerDataList()) {
-            if (ownerGroup || ownerData.hasPermission(permission)) {
-                LOG.trace("Adding 'owner' predicate for {}.{}", from.getJavaType(), ownerData.getPropertyName());
-                SingularAttribute<? super Object, ?> idAttribute = aclMetaData
-                        .getAclEntityMetaData(ownerData.getPropertyType()).getIdAttribute();
-                if (ownerData.isCollection()) {
-                    predicates.add(
-                            cb.equal(from.join(ownerData.getPropertyName(), JoinType.LEFT).get(idAttribute), userId));
-                } else {
-                    predicates.add(cb.equal(from.get(ownerData.getPropertyName()).get(idAttribute), userId));
-                }
+        for (OwnerPlan ownerPlan : owners) {
+            LOG.trace("Adding 'owner' predicate for {}.{}", from.getJavaType(), ownerPlan.getPropertyName());
+            SingularAttribute<? super Object, ?> idAttribute = ownerPlan.getIdAttribute();
+            if (ownerPlan.isCollection() && strategy == AclPredicateStrategy.EXISTS) {
+                CorrelatedSubquery subquery = new CorrelatedSubquery(from, criteria);
+                Join<Object, Object> owner = subquery.join(ownerPlan.getPropertyName());
+                predicates.add(subquery.exists(cb, cb.equal(owner.get(idAttribute), userId)));
+            } else if (ownerPlan.isCollection()) {
+                Join<Object, Object> owner = leftJoin(from, ownerPlan.getPropertyName(), aclJoins);
+                predicates.add(cb.equal(owner.get(idAttribute), userId));
+            } else {
+                predicates.add(cb.equal(from.get(ownerPlan.getPropertyName()).get(idAttribute), userId));
             }
         }
         return predicates;
@@ -258,19 +449,28 @@ public class AclUserPermissionSpecification implements AclSpecification {
 
     /**
      * Creates predicates for indirect owners defined by {@link AclOwner} annotation on NON-AclUser fields
-     *
-     * @param permission
      */
-    private List<Predicate> createOwnerGroupPredicates(From<?, ?> from, CriteriaBuilder cb, Serializable userId,
-                                                       String permission) {
+    private List<Predicate> createOwnerGroupPredicates(From<?, ?> from, CommonAbstractCriteria criteria,
+                                                       CriteriaBuilder cb, AclPredicateStrategy strategy,
+                                                       Set<Join<?, ?>> aclJoins, Expression<?> userId,
+                                                       List<OwnerGroupPlan> ownerGroups) {
         List<Predicate> predicates = new ArrayList<>();
-        AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(from.getJavaType());
-        for (OwnerData ownerGroupData : metaData.getOwnerGroupDataList()) {
-            if (ownerGroupData.hasPermission(permission)) {
-                LOG.trace("Adding 'owner-group' predicate for {}.{}", from.getJavaType(),
-                        ownerGroupData.getPropertyName());
-                predicates.addAll(createOwnerPredicates(from.join(ownerGroupData.getPropertyName(), JoinType.LEFT), cb,
-                        userId, permission, true));
+        for (OwnerGroupPlan ownerGroupPlan : ownerGroups) {
+            if (ownerGroupPlan.getOwners().isEmpty()) {
+                // No predicate would use the join of the group
+                continue;
+            }
+            LOG.trace("Adding 'owner-group' predicate for {}.{}", from.getJavaType(),
+                    ownerGroupPlan.getPropertyName());
+            if (strategy == AclPredicateStrategy.EXISTS) {
+                CorrelatedSubquery subquery = new CorrelatedSubquery(from, criteria);
+                Join<Object, Object> ownerGroup = subquery.join(ownerGroupPlan.getPropertyName());
+                List<Predicate> groupPredicates = createOwnerPredicates(ownerGroup, subquery.getSubquery(), cb,
+                        strategy, aclJoins, userId, ownerGroupPlan.getOwners());
+                predicates.add(subquery.exists(cb, or(cb, groupPredicates)));
+            } else {
+                predicates.addAll(createOwnerPredicates(leftJoin(from, ownerGroupPlan.getPropertyName(), aclJoins),
+                        criteria, cb, strategy, aclJoins, userId, ownerGroupPlan.getOwners()));
             }
         }
         return predicates;
@@ -278,22 +478,32 @@ public class AclUserPermissionSpecification implements AclSpecification {
 
     /**
      * Creates predicates for parent objects defined by {@link AclParent} annotation
-     *
-     * @param permission
      */
-    private List<Predicate> createParentPredicates(From<?, ?> from, CriteriaBuilder cb, Serializable userId,
-                                                   String permission, int depth) {
+    private List<Predicate> createParentPredicates(From<?, ?> from, CommonAbstractCriteria criteria,
+                                                   CriteriaBuilder cb, AclPredicateStrategy strategy,
+                                                   Set<Join<?, ?>> aclJoins, Expression<?> userId,
+                                                   List<ParentPlan> parents,
+                                                   boolean skipSelfReferencing) {
         List<Predicate> predicates = new ArrayList<>();
-        AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(from.getJavaType());
-        for (ParentData parentData : metaData.getParentDataList()) {
-            if (parentData.hasPermission(permission)) {
-                LOG.trace("Adding 'parent' sub-predicates for {}.{}", from.getJavaType(), parentData.getPropertyName());
-                String permissionPrefix = parentData.getPermissionPrefix();
-                String parentPermission = permissionPrefix.isEmpty() ? permission
-                        : permissionPrefix + PERMISSION_PREFIX_DELIMITER + permission;
-                // create predicates recursively on parent objects using prefixed permission
-                predicates.add(toSubPredicate(from.join(parentData.getPropertyName(), JoinType.LEFT), cb, userId,
-                        parentPermission, depth - 1));
+        for (ParentPlan parentPlan : parents) {
+            if (skipSelfReferencing && parentPlan.isSelfReferencing()) {
+                // It's evaluated by the recursive query
+                continue;
+            }
+            if (parentPlan.getPlan().isEmpty()) {
+                // No grant paths within the remaining depth. Don't join the parent for nothing
+                continue;
+            }
+            LOG.trace("Adding 'parent' sub-predicates for {}.{}", from.getJavaType(), parentPlan.getPropertyName());
+            // create predicates recursively on parent objects using the plan of the prefixed permission
+            if (strategy == AclPredicateStrategy.EXISTS) {
+                CorrelatedSubquery subquery = new CorrelatedSubquery(from, criteria);
+                Join<Object, Object> parent = subquery.join(parentPlan.getPropertyName());
+                predicates.add(subquery.exists(cb, toSubPredicate(parent, subquery.getSubquery(), cb, strategy,
+                        aclJoins, userId, parentPlan.getPlan())));
+            } else {
+                Join<Object, Object> parent = leftJoin(from, parentPlan.getPropertyName(), aclJoins);
+                predicates.add(toSubPredicate(parent, criteria, cb, strategy, aclJoins, userId, parentPlan.getPlan()));
             }
         }
         return predicates;
@@ -302,58 +512,195 @@ public class AclUserPermissionSpecification implements AclSpecification {
     /**
      * Creates predicates for permissionLinks
      */
-    private List<Predicate> createPermissionLinkPredicates(From<?, ?> from, CriteriaBuilder cb, Serializable userId,
-                                                           String permission) {
+    private List<Predicate> createPermissionLinkPredicates(From<?, ?> from, CommonAbstractCriteria criteria,
+                                                           CriteriaBuilder cb, AclPredicateStrategy strategy,
+                                                           Set<Join<?, ?>> aclJoins, Expression<?> userId,
+                                                           List<PermissionLinkPlan> permissionLinks) {
         List<Predicate> predicates = new ArrayList<>();
 
-        AclEntityMetaData metaData = aclMetaData.getAclEntityMetaData(from.getJavaType());
-        for (PermissionLinkData permissionLinkData : metaData.getPermissionLinkList()) {
+        for (PermissionLinkPlan permissionLinkPlan : permissionLinks) {
+            if (!hasOwners(permissionLinkPlan)) {
+                // No predicate would use the permission-link, so it's not joined at all (an unused LEFT join of a
+                // collection would still multiply the rows)
+                continue;
+            }
             LOG.trace("Adding 'permission-link' predicate for {}.{}", from.getJavaType(),
-                    permissionLinkData.getPropertyName());
-            Join<Object, Object> permissionLink = from.join(permissionLinkData.getPropertyName(), JoinType.LEFT);
-            permissionLink.on(createOnPredicate(cb,
-                    permissionLink.<String>get(permissionLinkData.getPermissionField()), permission));
-            predicates.addAll(createOwnerPredicates(permissionLink, cb, userId, permission, false));
-            predicates.addAll(createOwnerGroupPredicates(permissionLink, cb, userId, permission));
+                    permissionLinkPlan.getPropertyName());
+            if (strategy == AclPredicateStrategy.EXISTS) {
+                CorrelatedSubquery subquery = new CorrelatedSubquery(from, criteria);
+                Join<Object, Object> permissionLink = subquery.join(permissionLinkPlan.getPropertyName());
+                List<Predicate> linkPredicates = new ArrayList<>();
+                linkPredicates.addAll(createOwnerPredicates(permissionLink, subquery.getSubquery(), cb, strategy,
+                        aclJoins, userId, permissionLinkPlan.getOwners()));
+                linkPredicates.addAll(createOwnerGroupPredicates(permissionLink, subquery.getSubquery(), cb,
+                        strategy, aclJoins, userId, permissionLinkPlan.getOwnerGroups()));
+                // The ON clause of the JOIN strategy is simply a part of the WHERE clause of the sub-query
+                predicates.add(subquery.exists(cb, cb.and(createOnPredicate(cb, permissionLink, permissionLinkPlan),
+                        or(cb, linkPredicates))));
+            } else {
+                Join<Object, Object> permissionLink = permissionLinkJoin(from, permissionLinkPlan, cb, aclJoins);
+                List<Predicate> linkPredicates = new ArrayList<>();
+                linkPredicates.addAll(createOwnerPredicates(permissionLink, criteria, cb, strategy, aclJoins, userId,
+                        permissionLinkPlan.getOwners()));
+                linkPredicates.addAll(createOwnerGroupPredicates(permissionLink, criteria, cb, strategy, aclJoins,
+                        userId, permissionLinkPlan.getOwnerGroups()));
+                // The ON clause of the join may be merged with the ON clauses of other plans, so it's repeated here
+                predicates.add(cb.and(createOnPredicate(cb, permissionLink, permissionLinkPlan),
+                        or(cb, linkPredicates)));
+            }
         }
 
         return predicates;
     }
 
-    private Predicate createOnPredicate(CriteriaBuilder cb, Expression<String> field, String permission) {
-        int index = permission.lastIndexOf(PERMISSION_PREFIX_DELIMITER) + 1;
+    /**
+     * Returns true if the given plan creates at least one owner or owner-group predicate on the permission-link
+     */
+    private static boolean hasOwners(PermissionLinkPlan permissionLinkPlan) {
+        if (!permissionLinkPlan.getOwners().isEmpty()) {
+            return true;
+        }
+        for (OwnerGroupPlan ownerGroupPlan : permissionLinkPlan.getOwnerGroups()) {
+            if (!ownerGroupPlan.getOwners().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        List<Predicate> onPredicates = createOnPredicate(cb, field, permission.substring(index),
-                permission.substring(0, index));
+    static Predicate createOnPredicate(CriteriaBuilder cb, From<?, ?> permissionLink,
+                                        PermissionLinkPlan permissionLinkPlan) {
+        if (permissionLinkPlan.isStructured()) {
+            return createStructuredOnPredicate(cb, permissionLink, permissionLinkPlan);
+        }
+        Expression<String> field = permissionLink.get(permissionLinkPlan.getPermissionField());
+        List<Predicate> onPredicates = new ArrayList<>();
+        for (String permission : permissionLinkPlan.getPermissions()) {
+            onPredicates.add(cb.equal(field, permission));
+        }
+        for (String pattern : permissionLinkPlan.getPermissionPatterns()) {
+            onPredicates.add(cb.like(field, pattern));
+        }
+        for (String pattern : permissionLinkPlan.getExcludedPermissionPatterns()) {
+            onPredicates.add(cb.notLike(field, pattern));
+        }
+        return or(cb, onPredicates);
+    }
 
-        return cb.or(onPredicates.toArray(new Predicate[0]));
+    /**
+     * Creates the ON clause of {@link StructuredPermissionLink}s. It matches the prefix and name fields by equality, IN
+     * and prefix-LIKE predicates, so an index on these fields can be used.
+     */
+    private static Predicate createStructuredOnPredicate(CriteriaBuilder cb, From<?, ?> permissionLink,
+                                                         PermissionLinkPlan permissionLinkPlan) {
+        Expression<String> prefix = permissionLink.get(StructuredPermissionLink.PERMISSION_PREFIX_FIELD);
+        List<Predicate> prefixPredicates = new ArrayList<>();
+        prefixPredicates.add(cb.isNull(prefix));
+        if (!permissionLinkPlan.getPermissionPrefixes().isEmpty()) {
+            prefixPredicates.add(prefix.in(permissionLinkPlan.getPermissionPrefixes()));
+        }
+        for (String pattern : permissionLinkPlan.getPermissionPrefixPatterns()) {
+            prefixPredicates.add(cb.like(prefix, pattern));
+        }
+        if (permissionLinkPlan.getPermissionNames().isEmpty()) {
+            return or(cb, prefixPredicates);
+        }
+        Expression<String> name = permissionLink.get(StructuredPermissionLink.PERMISSION_NAME_FIELD);
+        return cb.and(or(cb, prefixPredicates), name.in(permissionLinkPlan.getPermissionNames()));
     }
 
-    private List<Predicate> createOnPredicate(CriteriaBuilder cb, Expression<String> field, String permission,
-                                              String prefixes) {
-        List<Predicate> onPredicates = new ArrayList<>();
-        if (prefixes.isEmpty()) {
-            // Create top level permission-checks
-            if (permission.equals(READ_PERMISSION)) {
-                onPredicates.add(cb.notLike(field, prefixes + "%" + PERMISSION_PREFIX_DELIMITER + "%"));
-            } else {
-                onPredicates.add(cb.equal(field, ALL_PERMISSION));
-                onPredicates.add(cb.equal(field, permission));
+    /**
+     * Returns the LEFT join of the given property from the shared joins of the query (see
+     * {@link AclQueryUtils#getOrCreateJoin(From, String, JoinType)}). The joins of the singular properties (including
+     * the fetch joins of an entity graph) are always reused. The joins of the collections are reused only if they were
+     * created by the ACL predicates of the same query (the given registry): the grant paths are OR-ed, so they can
+     * share the same element of a collection, but the predicates of a specification on the same join would be AND-ed
+     * with them.
+     */
+    private Join<Object, Object> leftJoin(From<?, ?> from, String propertyName, Set<Join<?, ?>> aclJoins) {
+        Join<Object, Object> join = AclQueryUtils.findJoin(from, propertyName, JoinType.LEFT);
+        if (join != null && (join.getAttribute() instanceof SingularAttribute || aclJoins.contains(join))) {
+            return join;
+        }
+        join = from.join(propertyName, JoinType.LEFT);
+        if (!(join.getAttribute() instanceof SingularAttribute)) {
+            aclJoins.add(join);
+        }
+        return join;
+    }
+
+    /**
+     * Returns the LEFT join of the permission-link property of the given plan. The permission-link joins of the same
+     * property created by the ACL predicates on the same {@link From} are merged by OR-ing their ON clauses, so the
+     * property is joined only once. The predicates of the plans repeat their own ON clause, so the merged join doesn't
+     * widen them.
+     */
+    @SuppressWarnings("unchecked")
+    private Join<Object, Object> permissionLinkJoin(From<?, ?> from, PermissionLinkPlan permissionLinkPlan,
+                                                    CriteriaBuilder cb, Set<Join<?, ?>> aclJoins) {
+        for (Join<?, ?> join : from.getJoins()) {
+            if (join.getOn() != null && join.getJoinType() == JoinType.LEFT && aclJoins.contains(join)
+                    && join.getAttribute().getName().equals(permissionLinkPlan.getPropertyName())) {
+                Join<Object, Object> permissionLink = (Join<Object, Object>) join;
+                permissionLink.on(cb.or(permissionLink.getOn(),
+                        createOnPredicate(cb, permissionLink, permissionLinkPlan)));
+                return permissionLink;
             }
-        } else {
-            // Create child-level permission-checks
-            if (permission.equals(READ_PERMISSION)) {
-                onPredicates.add(cb.like(field, prefixes + "%"));
+        }
+        Join<Object, Object> permissionLink = from.join(permissionLinkPlan.getPropertyName(), JoinType.LEFT);
+        permissionLink.on(createOnPredicate(cb, permissionLink, permissionLinkPlan));
+        aclJoins.add(permissionLink);
+        return permissionLink;
+    }
+
+    /**
+     * Correlated sub-query for the {@link AclPredicateStrategy#EXISTS} strategy. Its root is the given {@link From}
+     * correlated into the sub-query (see {@link Subquery#correlate(Root)}), so any predicate created on the joins of
+     * its root is evaluated as a semi-join of the original {@link From}. There is no self-join by the id, so it works
+     * with composite ids too.
+     */
+    private static class CorrelatedSubquery {
+
+        private final Subquery<Object> subquery;
+        private final From<Object, Object> root;
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        CorrelatedSubquery(From<?, ?> from, CommonAbstractCriteria criteria) {
+            this.subquery = criteria.subquery(Object.class);
+            if (from instanceof Root) {
+                this.root = subquery.correlate((Root<Object>) from);
             } else {
-                onPredicates.add(cb.equal(field, prefixes + ALL_PERMISSION));
-                onPredicates.add(cb.equal(field, prefixes + permission));
+                this.root = subquery.correlate((Join<Object, Object>) from);
             }
+            subquery.select((Expression) root);
+        }
+
+        Subquery<Object> getSubquery() {
+            return subquery;
+        }
 
-            // create permission-checks recursively for upper child-levels
-            int index = prefixes.lastIndexOf(PERMISSION_PREFIX_DELIMITER, prefixes.length() - 2) + 1;
-            onPredicates.addAll(createOnPredicate(cb, field, permission, prefixes.substring(0, index)));
+        From<Object, Object> getRoot() {
+            return root;
         }
 
-        return onPredicates;
+        /**
+         * Creates an inner join from the root of the sub-query.
+         */
+        Join<Object, Object> join(String propertyName) {
+            return root.join(propertyName);
+        }
+
+        /**
+         * Applies the given predicate to the sub-query and returns the EXISTS predicate of it. If there are no joins
+         * then the predicate is returned as it is: the correlated root is rendered as the original {@link From}, and a
+         * sub-query without joins would have no FROM clause.
+         */
+        Predicate exists(CriteriaBuilder cb, Predicate predicate) {
+            if (root.getJoins().isEmpty()) {
+                return predicate;
+            }
+            subquery.where(predicate);
+            return cb.exists(subquery);
+        }
     }
 }
@@ -15,11 +15,15 @@
  */
 package com.berrycloud.acl;
 
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import com.berrycloud.acl.data.AuthorityRegistry;
 import com.berrycloud.acl.security.AclUserDetails;
 
 /**
@@ -29,6 +33,12 @@ import com.berrycloud.acl.security.AclUserDetails;
  */
 public class AclUtils {
 
+    /**
+     * The last calculated authority fingerprint of the current thread. A request usually runs many queries with the
+     * same Authentication object, so the fingerprint is calculated only once for them.
+     */
+    private final ThreadLocal<AuthorityFingerprint> lastFingerprint = new ThreadLocal<>();
+
     /**
      * Get the Principal from the SecurityContext or null if there is no authentication
      */
@@ -122,4 +132,44 @@ public class AclUtils {
         }
         return false;
     }
+
+    /**
+     * Returns the fingerprint of the authorities of the current principal over the given registry. Authorities what are
+     * not in the registry are ignored. The returned set must not be modified.
+     *
+     * @param authorityRegistry
+     */
+    public BitSet getAuthorityFingerprint(AuthorityRegistry authorityRegistry) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return new BitSet();
+        }
+        AuthorityFingerprint fingerprint = lastFingerprint.get();
+        if (fingerprint == null || fingerprint.authentication.get() != authentication
+                || fingerprint.authorityRegistry != authorityRegistry) {
+            BitSet mask = new BitSet();
+            for (GrantedAuthority grantedAuthority : authentication.getAuthorities()) {
+                int index = authorityRegistry.getIndex(grantedAuthority.getAuthority());
+                if (index >= 0) {
+                    mask.set(index);
+                }
+            }
+            fingerprint = new AuthorityFingerprint(authentication, authorityRegistry, mask);
+            lastFingerprint.set(fingerprint);
+        }
+        return fingerprint.mask;
+    }
+
+    private static class AuthorityFingerprint {
+
+        private final WeakReference<Authentication> authentication;
+        private final AuthorityRegistry authorityRegistry;
+        private final BitSet mask;
+
+        AuthorityFingerprint(Authentication authentication, AuthorityRegistry authorityRegistry, BitSet mask) {
+            this.authentication = new WeakReference<>(authentication);
+            this.authorityRegistry = authorityRegistry;
+            this.mask = mask;
+        }
+    }
 }
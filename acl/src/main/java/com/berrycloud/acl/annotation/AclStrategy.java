@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.annotation;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import com.berrycloud.acl.AclPredicateStrategy;
+
+/**
+ * Overrides the strategy of the ACL predicates (spring.data.jpa.acl.strategy property) for the annotated entity. E.g.
+ * the large tables with many-to-many owners can be checked by {@link AclPredicateStrategy#EXISTS} sub-queries while the
+ * small lookup tables are still checked by joins.
+ * <p>
+ * The {@link AclPredicateStrategy#CLOSURE} strategy can be used only if the closure table is maintained (the global
+ * strategy is CLOSURE too), otherwise the startup fails with an {@link IllegalStateException}.
+ *
+ * @author István Rátkai (Selindek)
+ *
+ */
+@Target({ TYPE })
+@Retention(RUNTIME)
+@Documented
+public @interface AclStrategy {
+    /**
+     * The strategy of the ACL predicates of the annotated entity.
+     */
+    AclPredicateStrategy value();
+}
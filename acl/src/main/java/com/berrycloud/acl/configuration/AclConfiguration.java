@@ -19,6 +19,7 @@ import com.berrycloud.acl.AclLogic;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
 import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
 import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder.EntityManagerFactoryBeanCallback;
@@ -26,6 +27,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.repository.support.Repositories;
 import org.springframework.data.rest.webmvc.ExportAwareRepositories;
 import org.springframework.orm.jpa.JpaVendorAdapter;
@@ -35,20 +37,29 @@ import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import com.berrycloud.acl.AclLogicImpl;
+import com.berrycloud.acl.AclPermissionClosureManager;
 import com.berrycloud.acl.AclPersistenceUnitPostProcessor;
+import com.berrycloud.acl.AclPredicateStrategy;
+import com.berrycloud.acl.AclRecursiveParentEvaluator;
 import com.berrycloud.acl.AclSpecification;
+import com.berrycloud.acl.AclStrategySelector;
 import com.berrycloud.acl.AclUserPermissionSpecification;
 import com.berrycloud.acl.AclUtils;
 import com.berrycloud.acl.configuration.rest.AclRepositoryRestConfiguration;
 import com.berrycloud.acl.data.AclMetaData;
+import com.berrycloud.acl.repository.AclCountCache;
 import com.berrycloud.acl.security.SimpleAclUserDetailsService;
 import com.berrycloud.acl.security.access.AclPermissionEvaluator;
 
 import javax.persistence.EntityManager;
 
 import static com.berrycloud.acl.AclConstants.ALL_PERMISSION;
+import static com.berrycloud.acl.AclConstants.DELETE_PERMISSION;
+import static com.berrycloud.acl.AclConstants.READ_PERMISSION;
+import static com.berrycloud.acl.AclConstants.UPDATE_PERMISSION;
 
 /**
  * Main ACL configuration class.
@@ -64,9 +75,37 @@ public class AclConfiguration {
     @Value("${spring.data.jpa.acl.max-depth:2}")
     private int maxDepth;
 
+    @Value("${spring.data.jpa.acl.strategy:JOIN}")
+    private AclPredicateStrategy strategy;
+
+    @Value("${spring.data.jpa.acl.closure.permissions:" + READ_PERMISSION + "," + UPDATE_PERMISSION + ","
+            + DELETE_PERMISSION + "}")
+    private String[] closurePermissions;
+
+    @Value("${spring.data.jpa.acl.closure.rebuild-on-startup:true}")
+    private boolean rebuildClosureOnStartup;
+
+    @Value("${spring.data.jpa.acl.recursive-parents.max-ids:" + AclRecursiveParentEvaluator.DEFAULT_MAX_IDS + "}")
+    private int recursiveParentsMaxIds;
+
+    @Value("${spring.data.jpa.acl.recursive-parents.unroll-on-overflow:false}")
+    private boolean recursiveParentsUnrollOnOverflow;
+
     @Value("${spring.data.jpa.acl.self-permissions:" + ALL_PERMISSION + "}")
     private String[] defaultSelfPermissions;
 
+    @Value("${spring.data.jpa.acl.count-cache.ttl:0}")
+    private long countCacheTtl;
+
+    @Value("${spring.data.jpa.acl.adaptive.sample-interval:" + AclStrategySelector.DEFAULT_SAMPLE_INTERVAL + "}")
+    private long adaptiveSampleInterval;
+
+    @Value("${spring.data.jpa.acl.adaptive.max-join-fan-out:" + AclStrategySelector.DEFAULT_MAX_JOIN_FAN_OUT + "}")
+    private double adaptiveMaxJoinFanOut;
+
+    @Value("${spring.data.jpa.acl.adaptive.min-row-count:" + AclStrategySelector.DEFAULT_MIN_ROW_COUNT + "}")
+    private long adaptiveMinRowCount;
+
     /**
      * We replace the stock repostiories with our modified subclass. It correctly prioritises the repository interfaces,
      * so data-rest-API will use the repository with the @Primary annotation. We create the bean here in the main
@@ -86,7 +125,8 @@ public class AclConfiguration {
 
             @Override
             public void execute(LocalContainerEntityManagerFactoryBean factory) {
-                factory.setPersistenceUnitPostProcessors(new AclPersistenceUnitPostProcessor());
+                factory.setPersistenceUnitPostProcessors(
+                        new AclPersistenceUnitPostProcessor(strategy == AclPredicateStrategy.CLOSURE));
             }
 
         });
@@ -107,7 +147,7 @@ public class AclConfiguration {
 
     @Bean
     public AclLogicImpl aclLogic(EntityManager em) {
-        return new AclLogicImpl(em, defaultSelfPermissions);
+        return new AclLogicImpl(em, defaultSelfPermissions, strategy);
     }
 
     @Bean
@@ -115,13 +155,65 @@ public class AclConfiguration {
         return new AclUtils();
     }
 
+    @Bean
+    public AclCountCache aclCountCache() {
+        return new AclCountCache(aclUtils(), countCacheTtl);
+    }
+
     @Bean
     public AclMetaData aclMetaData(AclLogic aclLogic) {
         return aclLogic.createAclMetaData();
     }
 
     @Bean
-    public AclSpecification aclSpecification(AclMetaData aclMetaData) {
-        return new AclUserPermissionSpecification(aclUtils(), aclMetaData, maxDepth);
+    @ConditionalOnProperty(name = "spring.data.jpa.acl.strategy", havingValue = "CLOSURE")
+    public AclPermissionClosureManager aclPermissionClosureManager(EntityManager em, AclMetaData aclMetaData,
+            PlatformTransactionManager transactionManager) {
+        return new AclPermissionClosureManager(em, aclMetaData, transactionManager, maxDepth, closurePermissions,
+                rebuildClosureOnStartup);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.data.jpa.acl.recursive-parents", havingValue = "true")
+    public AclRecursiveParentEvaluator aclRecursiveParentEvaluator(EntityManager em, AclMetaData aclMetaData) {
+        return new AclRecursiveParentEvaluator(em, aclMetaData, recursiveParentsMaxIds,
+                recursiveParentsUnrollOnOverflow);
+    }
+
+    /**
+     * The selector is created only if it's requested by the {@link AclSpecification} (the ADAPTIVE strategy is used
+     * globally or by an entity), so the statistics are not sampled otherwise.
+     */
+    @Bean
+    @Lazy
+    public AclStrategySelector aclStrategySelector(EntityManager em) {
+        return new AclStrategySelector(em, adaptiveSampleInterval, adaptiveMaxJoinFanOut, adaptiveMinRowCount);
+    }
+
+    @Bean
+    public AclSpecification aclSpecification(AclMetaData aclMetaData,
+            ObjectProvider<AclPermissionClosureManager> permissionClosureManagerProvider,
+            ObjectProvider<AclRecursiveParentEvaluator> recursiveParentEvaluatorProvider,
+            ObjectProvider<AclStrategySelector> strategySelectorProvider) {
+        AclUserPermissionSpecification aclSpecification = new AclUserPermissionSpecification(aclUtils(), aclMetaData,
+                maxDepth, strategy);
+        aclSpecification.setPermissionClosureManager(permissionClosureManagerProvider.getIfAvailable());
+        aclSpecification.setRecursiveParentEvaluator(recursiveParentEvaluatorProvider.getIfAvailable());
+        if (isAdaptive(aclMetaData)) {
+            aclSpecification.setStrategySelector(strategySelectorProvider.getIfAvailable());
+        }
+        return aclSpecification;
+    }
+
+    private boolean isAdaptive(AclMetaData aclMetaData) {
+        if (strategy == AclPredicateStrategy.ADAPTIVE) {
+            return true;
+        }
+        for (Class<?> javaType : aclMetaData.getManagedTypes()) {
+            if (aclMetaData.getAclEntityMetaData(javaType).getStrategy() == AclPredicateStrategy.ADAPTIVE) {
+                return true;
+            }
+        }
+        return false;
     }
 }
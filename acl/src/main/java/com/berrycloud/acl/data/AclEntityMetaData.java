@@ -20,6 +20,8 @@ import java.util.List;
 
 import javax.persistence.metamodel.SingularAttribute;
 
+import com.berrycloud.acl.AclPredicateStrategy;
+
 /**
  * A storage class containing all ACL metadata for a managed entities. The data is constructed during startup and its
  * used during permission-evaluation.
@@ -36,6 +38,7 @@ public class AclEntityMetaData {
     private List<RolePermissionData> rolePermissionList = new ArrayList<>();
     private List<RolePermissionData> roleConditionList = new ArrayList<>();
     private List<CreatePermissionData> createPermissionList = new ArrayList<>();
+    private AclPredicateStrategy strategy;
 
     public List<OwnerData> getOwnerDataList() {
         return ownerDataList;
@@ -76,4 +79,16 @@ public class AclEntityMetaData {
     public void setCreatePermissionList(List<CreatePermissionData> createPermissionList) {
         this.createPermissionList = createPermissionList;
     }
+
+    /**
+     * The strategy of the ACL predicates defined by {@link com.berrycloud.acl.annotation.AclStrategy} annotation, or
+     * null if the global strategy is used.
+     */
+    public AclPredicateStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(AclPredicateStrategy strategy) {
+        this.strategy = strategy;
+    }
 }
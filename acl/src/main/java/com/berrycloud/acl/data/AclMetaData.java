@@ -17,6 +17,7 @@ package com.berrycloud.acl.data;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A storage class containing all ACL metadata for all the managed entities and for the logic itself. The data is
@@ -28,10 +29,23 @@ public class AclMetaData {
 
     private final Map<Class<?>, AclEntityMetaData> metaDataMap;
     private final PermissionData selfPermissions;
+    private final PermissionRegistry permissionRegistry;
+    private final AuthorityRegistry authorityRegistry;
 
-    public AclMetaData(Map<Class<?>, AclEntityMetaData> metaDataMap, PermissionData selfPermissions) {
+    public AclMetaData(Map<Class<?>, AclEntityMetaData> metaDataMap, PermissionData selfPermissions,
+            PermissionRegistry permissionRegistry, AuthorityRegistry authorityRegistry) {
         this.metaDataMap = Collections.unmodifiableMap(metaDataMap);
         this.selfPermissions = selfPermissions;
+        this.permissionRegistry = permissionRegistry;
+        this.authorityRegistry = authorityRegistry;
+    }
+
+    public PermissionRegistry getPermissionRegistry() {
+        return permissionRegistry;
+    }
+
+    public AuthorityRegistry getAuthorityRegistry() {
+        return authorityRegistry;
     }
 
     public PermissionData getSelfPermissions() {
@@ -41,4 +55,8 @@ public class AclMetaData {
     public AclEntityMetaData getAclEntityMetaData(Class<?> entityClass) {
         return metaDataMap.get(entityClass);
     }
+
+    public Set<Class<?>> getManagedTypes() {
+        return metaDataMap.keySet();
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense registry of the authorities used in the role annotations. The authorities of the principal are mapped to a
+ * fingerprint over this registry, so the role checks are bit mask intersections. Authorities what are not used in any
+ * annotation are not part of the fingerprint.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AuthorityRegistry {
+
+    private final ConcurrentMap<String, Integer> authorities = new ConcurrentHashMap<>();
+    private final AtomicInteger authorityCounter = new AtomicInteger();
+
+    /**
+     * Interns the given authorities and returns their mask.
+     */
+    public BitSet register(String[] authorities) {
+        BitSet mask = new BitSet();
+        for (String authority : authorities) {
+            mask.set(register(authority));
+        }
+        return mask;
+    }
+
+    private int register(String authority) {
+        Integer index = authorities.get(authority);
+        if (index == null) {
+            index = authorityCounter.getAndIncrement();
+            Integer existingIndex = authorities.putIfAbsent(authority, index);
+            if (existingIndex != null) {
+                index = existingIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the given authority or -1 if it's not used in any annotation.
+     */
+    public int getIndex(String authority) {
+        Integer index = authorities.get(authority);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * The number of the interned authorities.
+     */
+    public int size() {
+        return authorities.size();
+    }
+}
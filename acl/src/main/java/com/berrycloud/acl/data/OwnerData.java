@@ -27,8 +27,9 @@ public class OwnerData extends PropertyPermissionData {
     private final Class<?> propertyType;
     private final boolean collection;
 
-    public OwnerData(String propertyName, Class<?> propertyType, boolean collection, String[] permissions) {
-        super(propertyName, permissions);
+    public OwnerData(String propertyName, Class<?> propertyType, boolean collection, String[] permissions,
+            PermissionRegistry permissionRegistry) {
+        super(propertyName, permissions, permissionRegistry);
         this.propertyType = propertyType;
         this.collection = collection;
     }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+import java.util.List;
+
+/**
+ * Compiled grant path of a {@link PermissionPlan} for a non-AclUser owner property. The owners of the group grant the
+ * permission regardless of their own permissions.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class OwnerGroupPlan {
+
+    private final String propertyName;
+    private final List<OwnerPlan> owners;
+
+    public OwnerGroupPlan(String propertyName, List<OwnerPlan> owners) {
+        this.propertyName = propertyName;
+        this.owners = owners;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * The owners of the group entity.
+     */
+    public List<OwnerPlan> getOwners() {
+        return owners;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Compiled grant path of a {@link PermissionPlan} for an AclUser (or AclUser collection) property.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class OwnerPlan {
+
+    private final String propertyName;
+    private final boolean collection;
+    private final SingularAttribute<? super Object, ?> idAttribute;
+
+    public OwnerPlan(String propertyName, boolean collection, SingularAttribute<? super Object, ?> idAttribute) {
+        this.propertyName = propertyName;
+        this.collection = collection;
+        this.idAttribute = idAttribute;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public boolean isCollection() {
+        return collection;
+    }
+
+    /**
+     * The id attribute of the owner type.
+     */
+    public SingularAttribute<? super Object, ?> getIdAttribute() {
+        return idAttribute;
+    }
+}
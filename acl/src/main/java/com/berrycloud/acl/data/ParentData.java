@@ -25,13 +25,32 @@ import com.berrycloud.acl.annotation.AclParent;
 public class ParentData extends PropertyPermissionData {
 
     private final String permissionPrefix;
+    private final Class<?> propertyType;
+    private final boolean selfReferencing;
 
-    public ParentData(String propertyName, String permissionPrefix, String[] permissions) {
-        super(propertyName, permissions);
+    public ParentData(String propertyName, Class<?> propertyType, String permissionPrefix, String[] permissions,
+            boolean selfReferencing, PermissionRegistry permissionRegistry) {
+        super(propertyName, permissions, permissionRegistry);
+        this.propertyType = propertyType;
         this.permissionPrefix = permissionPrefix;
+        this.selfReferencing = selfReferencing;
+    }
+
+    /**
+     * The type of the parent entity. (The element type if the property is a collection)
+     */
+    public Class<?> getPropertyType() {
+        return propertyType;
     }
 
     public String getPermissionPrefix() {
         return permissionPrefix;
     }
+
+    /**
+     * Whether the property is a single-valued, non-prefixed parent of the same entity type. (e.g. parent folder)
+     */
+    public boolean isSelfReferencing() {
+        return selfReferencing;
+    }
 }
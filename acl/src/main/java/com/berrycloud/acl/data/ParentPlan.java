@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+/**
+ * Compiled grant path of a {@link PermissionPlan} for an {@code @AclParent} property. It contains the plan of the parent
+ * entity for the (prefixed) parent permission.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class ParentPlan {
+
+    private final String propertyName;
+    private final PermissionPlan plan;
+    private final boolean selfReferencing;
+
+    public ParentPlan(String propertyName, PermissionPlan plan, boolean selfReferencing) {
+        this.propertyName = propertyName;
+        this.plan = plan;
+        this.selfReferencing = selfReferencing;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public PermissionPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * See {@link ParentData#isSelfReferencing()}
+     */
+    public boolean isSelfReferencing() {
+        return selfReferencing;
+    }
+}
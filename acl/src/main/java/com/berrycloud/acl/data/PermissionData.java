@@ -19,37 +19,36 @@ import static com.berrycloud.acl.AclConstants.ALL_PERMISSION;
 import static com.berrycloud.acl.AclConstants.PERMISSION_PREFIX_DELIMITER;
 import static com.berrycloud.acl.AclConstants.READ_PERMISSION;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 /**
- * Common superclass for all ACL permission descriptor metadata.
+ * Common superclass for all ACL permission descriptor metadata. The permissions are stored as bit masks over the
+ * {@link PermissionRegistry}, so a check is a single bit lookup without any allocation.
  *
  * @author István Rátkai (Selindek)
  *
  */
 public class PermissionData {
 
-    private final Set<String> permissions;
-    private final Set<String> allPrefixes;
+    private final PermissionRegistry permissionRegistry;
+    private final BitSet permissionMask = new BitSet();
+    private final BitSet allPrefixMask = new BitSet();
 
-    public PermissionData(String[] permissions) {
-        this.permissions = new HashSet<>(Arrays.asList(permissions));
-        this.allPrefixes = new HashSet<>();
-        calculatePermissions();
+    public PermissionData(String[] permissions, PermissionRegistry permissionRegistry) {
+        this.permissionRegistry = permissionRegistry;
+        calculatePermissions(permissions);
     }
 
-    private void calculatePermissions() {
-        Set<String> extraPermissions = new HashSet<>();
+    private void calculatePermissions(String[] permissions) {
         for (String permission : permissions) {
             int index = getPermissionIndex(permission);
-            extraPermissions.add(permission.substring(0, index) + READ_PERMISSION);
+            String prefix = permission.substring(0, index);
+            permissionMask.set(permissionRegistry.getPermission(permission).getIndex());
+            permissionMask.set(permissionRegistry.getPermission(prefix + READ_PERMISSION).getIndex());
             if (permission.substring(index).equals(ALL_PERMISSION)) {
-                allPrefixes.add(permission.substring(0, index));
+                allPrefixMask.set(permissionRegistry.getPrefixIndex(prefix));
             }
         }
-        permissions.addAll(extraPermissions);
     }
 
     protected int getPermissionIndex(String permission) {
@@ -57,7 +56,13 @@ public class PermissionData {
     }
 
     public boolean hasPermission(String permission) {
-        String prefix = permission.substring(0, getPermissionIndex(permission));
-        return allPrefixes.contains(prefix) || permissions.contains(permission);
+        return hasPermission(permissionRegistry.findPermission(permission));
+    }
+
+    public boolean hasPermission(PermissionKey permission) {
+        int prefixIndex = permission.getPrefixIndex();
+        int index = permission.getIndex();
+        return prefixIndex != PermissionKey.UNKNOWN_INDEX && allPrefixMask.get(prefixIndex)
+                || index != PermissionKey.UNKNOWN_INDEX && permissionMask.get(index);
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+/**
+ * Interned representation of a permission string. It contains the index of the permission and the index of its prefix
+ * in the {@link PermissionRegistry}, so permission checks don't need any String operations.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class PermissionKey {
+
+    /**
+     * The index of the permissions and prefixes what are not interned
+     */
+    public static final int UNKNOWN_INDEX = -1;
+
+    private final String permission;
+    private final int index;
+    private final int prefixIndex;
+
+    PermissionKey(String permission, int index, int prefixIndex) {
+        this.permission = permission;
+        this.index = index;
+        this.prefixIndex = prefixIndex;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getPrefixIndex() {
+        return prefixIndex;
+    }
+
+    /**
+     * Checks whether the permission is interned in the {@link PermissionRegistry}.
+     */
+    public boolean isInterned() {
+        return index != UNKNOWN_INDEX;
+    }
+
+    @Override
+    public String toString() {
+        return permission;
+    }
+}
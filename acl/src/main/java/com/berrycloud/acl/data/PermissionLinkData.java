@@ -23,18 +23,37 @@ package com.berrycloud.acl.data;
 public class PermissionLinkData {
 
     private final String propertyName;
+    private final Class<?> linkType;
     private final String permissionField;
+    private final boolean structured;
 
-    public PermissionLinkData(String propertyName, String permissionField) {
+    public PermissionLinkData(String propertyName, Class<?> linkType, String permissionField, boolean structured) {
         this.propertyName = propertyName;
+        this.linkType = linkType;
         this.permissionField = permissionField;
+        this.structured = structured;
     }
 
     public String getPropertyName() {
         return propertyName;
     }
 
+    /**
+     * The type of the PermissionLink entities in the collection.
+     */
+    public Class<?> getLinkType() {
+        return linkType;
+    }
+
     public String getPermissionField() {
         return permissionField;
     }
+
+    /**
+     * Whether the links store the structured form of their permission too. See
+     * {@link com.berrycloud.acl.domain.StructuredPermissionLink}
+     */
+    public boolean isStructured() {
+        return structured;
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+import java.util.List;
+
+/**
+ * Compiled grant path of a {@link PermissionPlan} for a PermissionLink collection. It contains the literals the
+ * permission field of the links is matched against and the owners of the link entity. If the links are
+ * {@link com.berrycloud.acl.domain.StructuredPermissionLink}s then it contains the literals of the prefix and name
+ * fields instead.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class PermissionLinkPlan {
+
+    private final String propertyName;
+    private final String permissionField;
+    private final List<String> permissions;
+    private final List<String> permissionPatterns;
+    private final List<String> excludedPermissionPatterns;
+    private final List<OwnerPlan> owners;
+    private final List<OwnerGroupPlan> ownerGroups;
+    private final boolean structured;
+    private final List<String> permissionPrefixes;
+    private final List<String> permissionPrefixPatterns;
+    private final List<String> permissionNames;
+
+    public PermissionLinkPlan(String propertyName, String permissionField, List<String> permissions,
+            List<String> permissionPatterns, List<String> excludedPermissionPatterns, List<OwnerPlan> owners,
+            List<OwnerGroupPlan> ownerGroups) {
+        this(propertyName, permissionField, permissions, permissionPatterns, excludedPermissionPatterns, false, null,
+                null, null, owners, ownerGroups);
+    }
+
+    /**
+     * Creates the plan of a {@link com.berrycloud.acl.domain.StructuredPermissionLink} collection.
+     */
+    public PermissionLinkPlan(String propertyName, List<String> permissionPrefixes,
+            List<String> permissionPrefixPatterns, List<String> permissionNames, List<OwnerPlan> owners,
+            List<OwnerGroupPlan> ownerGroups) {
+        this(propertyName, null, null, null, null, true, permissionPrefixes, permissionPrefixPatterns,
+                permissionNames, owners, ownerGroups);
+    }
+
+    private PermissionLinkPlan(String propertyName, String permissionField, List<String> permissions,
+            List<String> permissionPatterns, List<String> excludedPermissionPatterns, boolean structured,
+            List<String> permissionPrefixes, List<String> permissionPrefixPatterns, List<String> permissionNames,
+            List<OwnerPlan> owners, List<OwnerGroupPlan> ownerGroups) {
+        this.propertyName = propertyName;
+        this.permissionField = permissionField;
+        this.permissions = permissions;
+        this.permissionPatterns = permissionPatterns;
+        this.excludedPermissionPatterns = excludedPermissionPatterns;
+        this.structured = structured;
+        this.permissionPrefixes = permissionPrefixes;
+        this.permissionPrefixPatterns = permissionPrefixPatterns;
+        this.permissionNames = permissionNames;
+        this.owners = owners;
+        this.ownerGroups = ownerGroups;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public String getPermissionField() {
+        return permissionField;
+    }
+
+    /**
+     * The permission field matches if it's equal to any of these permissions.
+     */
+    public List<String> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * The permission field matches if it's LIKE any of these patterns.
+     */
+    public List<String> getPermissionPatterns() {
+        return permissionPatterns;
+    }
+
+    /**
+     * The permission field matches if it's NOT LIKE any of these patterns.
+     */
+    public List<String> getExcludedPermissionPatterns() {
+        return excludedPermissionPatterns;
+    }
+
+    /**
+     * Whether the prefix and name fields of the links are matched instead of the permission field.
+     */
+    public boolean isStructured() {
+        return structured;
+    }
+
+    /**
+     * The prefix field matches if it's NULL (top level permission) or it's equal to any of these prefixes.
+     */
+    public List<String> getPermissionPrefixes() {
+        return permissionPrefixes;
+    }
+
+    /**
+     * The prefix field matches if it's LIKE any of these patterns. (The patterns don't start with wildcard.)
+     */
+    public List<String> getPermissionPrefixPatterns() {
+        return permissionPrefixPatterns;
+    }
+
+    /**
+     * If it's not empty then the name field matches only if it's equal to any of these names.
+     */
+    public List<String> getPermissionNames() {
+        return permissionNames;
+    }
+
+    public List<OwnerPlan> getOwners() {
+        return owners;
+    }
+
+    public List<OwnerGroupPlan> getOwnerGroups() {
+        return ownerGroups;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+import java.util.List;
+
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Immutable, precompiled tree of the grant paths what could grant the given permission on the given entity type. Plans
+ * are compiled from the {@link AclMetaData} only once, so the permission checks and the permission-string calculations
+ * are not repeated for every query.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class PermissionPlan {
+
+    private final Class<?> entityType;
+    private final String permission;
+    private final SingularAttribute<? super Object, ?> idAttribute;
+    private final boolean self;
+    private final List<OwnerPlan> owners;
+    private final List<OwnerGroupPlan> ownerGroups;
+    private final List<PermissionLinkPlan> permissionLinks;
+    private final List<ParentPlan> parents;
+
+    public PermissionPlan(Class<?> entityType, String permission, SingularAttribute<? super Object, ?> idAttribute,
+            boolean self, List<OwnerPlan> owners, List<OwnerGroupPlan> ownerGroups,
+            List<PermissionLinkPlan> permissionLinks, List<ParentPlan> parents) {
+        this.entityType = entityType;
+        this.permission = permission;
+        this.idAttribute = idAttribute;
+        this.self = self;
+        this.owners = owners;
+        this.ownerGroups = ownerGroups;
+        this.permissionLinks = permissionLinks;
+        this.parents = parents;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    public SingularAttribute<? super Object, ?> getIdAttribute() {
+        return idAttribute;
+    }
+
+    /**
+     * Whether the entity itself is an AclUser and the user has the permission to her own entity.
+     */
+    public boolean isSelf() {
+        return self;
+    }
+
+    public List<OwnerPlan> getOwners() {
+        return owners;
+    }
+
+    public List<OwnerGroupPlan> getOwnerGroups() {
+        return ownerGroups;
+    }
+
+    public List<PermissionLinkPlan> getPermissionLinks() {
+        return permissionLinks;
+    }
+
+    public List<ParentPlan> getParents() {
+        return parents;
+    }
+
+    /**
+     * Whether the plan contains a self-referencing parent. (See {@link ParentData#isSelfReferencing()})
+     */
+    public boolean hasSelfReferencingParent() {
+        for (ParentPlan parentPlan : parents) {
+            if (parentPlan.isSelfReferencing()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether there is no grant path in this plan at all. (Nobody can gain the permission via relations)
+     */
+    public boolean isEmpty() {
+        return !self && owners.isEmpty() && ownerGroups.isEmpty() && permissionLinks.isEmpty() && parents.isEmpty();
+    }
+}
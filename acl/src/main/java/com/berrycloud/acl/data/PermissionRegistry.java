@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.data;
+
+import static com.berrycloud.acl.AclConstants.PERMISSION_PREFIX_DELIMITER;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense registry of the permission vocabulary. All of the permissions of the annotations are interned during startup,
+ * so the {@link PermissionData} instances can store their permissions as bit masks. The permissions used only in
+ * queries are not interned (they are supplied by the callers, so the registry would grow without limit), they are
+ * looked up by {@link #findPermission(String)}.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class PermissionRegistry {
+
+    private final ConcurrentMap<String, PermissionKey> permissions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> prefixes = new ConcurrentHashMap<>();
+    private final AtomicInteger permissionCounter = new AtomicInteger();
+    private final AtomicInteger prefixCounter = new AtomicInteger();
+
+    /**
+     * Returns the interned key of the given permission. It interns the permission if it's not interned yet, so it
+     * should be used only for the declared permissions.
+     */
+    public PermissionKey getPermission(String permission) {
+        PermissionKey key = permissions.get(permission);
+        if (key == null) {
+            String prefix = permission.substring(0, permission.lastIndexOf(PERMISSION_PREFIX_DELIMITER) + 1);
+            key = new PermissionKey(permission, permissionCounter.getAndIncrement(), getPrefixIndex(prefix));
+            PermissionKey existingKey = permissions.putIfAbsent(permission, key);
+            if (existingKey != null) {
+                key = existingKey;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns the interned key of the given permission, or a key with {@link PermissionKey#UNKNOWN_INDEX} if the
+     * permission is not interned. (Its prefix index is unknown too if the prefix is not interned.) A declared
+     * permission mask never contains the unknown index, so the key matches only the "all" permissions of its prefix.
+     */
+    public PermissionKey findPermission(String permission) {
+        PermissionKey key = permissions.get(permission);
+        if (key != null) {
+            return key;
+        }
+        Integer prefixIndex = prefixes
+                .get(permission.substring(0, permission.lastIndexOf(PERMISSION_PREFIX_DELIMITER) + 1));
+        return new PermissionKey(permission, PermissionKey.UNKNOWN_INDEX,
+                prefixIndex == null ? PermissionKey.UNKNOWN_INDEX : prefixIndex);
+    }
+
+    /**
+     * Checks whether the given permission is interned.
+     */
+    public boolean isRegistered(String permission) {
+        return permissions.containsKey(permission);
+    }
+
+    /**
+     * Returns the interned index of the given permission prefix. (The prefix contains the trailing delimiter.)
+     */
+    public int getPrefixIndex(String prefix) {
+        Integer index = prefixes.get(prefix);
+        if (index == null) {
+            index = prefixCounter.getAndIncrement();
+            Integer existingIndex = prefixes.putIfAbsent(prefix, index);
+            if (existingIndex != null) {
+                index = existingIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The number of the interned permissions.
+     */
+    public int size() {
+        return permissions.size();
+    }
+}
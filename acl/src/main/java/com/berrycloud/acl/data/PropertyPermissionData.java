@@ -24,8 +24,8 @@ public class PropertyPermissionData extends PermissionData {
 
     private final String propertyName;
 
-    public PropertyPermissionData(String propertyName, String[] permissions) {
-        super(permissions);
+    public PropertyPermissionData(String propertyName, String[] permissions, PermissionRegistry permissionRegistry) {
+        super(permissions, permissionRegistry);
         this.propertyName = propertyName;
     }
 
@@ -15,6 +15,8 @@
  */
 package com.berrycloud.acl.data;
 
+import java.util.BitSet;
+
 import com.berrycloud.acl.annotation.AclRolePermission;
 
 /**
@@ -25,13 +27,24 @@ import com.berrycloud.acl.annotation.AclRolePermission;
 public class RolePermissionData extends PermissionData {
 
     private final String[] authorities;
+    private final BitSet authorityMask;
 
-    public RolePermissionData(String[] authorities, String[] permissions) {
-        super(permissions);
+    public RolePermissionData(String[] authorities, String[] permissions, PermissionRegistry permissionRegistry,
+            AuthorityRegistry authorityRegistry) {
+        super(permissions, permissionRegistry);
         this.authorities = authorities;
+        this.authorityMask = authorityRegistry.register(authorities);
     }
 
     public String[] getAuthorities() {
         return authorities;
     }
+
+    /**
+     * Checks if the given authority fingerprint contains any of the authorities of this annotation. (Empty authority
+     * list means: ANY authority)
+     */
+    public boolean hasAnyAuthority(BitSet fingerprint) {
+        return authorities.length == 0 || authorityMask.intersects(fingerprint);
+    }
 }
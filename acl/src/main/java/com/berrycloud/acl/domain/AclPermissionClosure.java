@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.domain;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * A row of the materialized permission closure table. It's only used when the
+ * {@link com.berrycloud.acl.AclPredicateStrategy#CLOSURE} strategy is active. The rows are maintained by the
+ * {@link com.berrycloud.acl.AclPermissionClosureManager}, they should never be modified directly.
+ * <p>
+ * The ids of the entities are stored in their String representation. Integral ids are stored in the numeric
+ * {@code entity_num_id} column too, so they can be compared with the primary keys without any casting.
+ *
+ * @author István Rátkai (Selindek)
+ */
+@Entity
+@Table(name = AclPermissionClosure.TABLE_NAME, indexes = {
+        // Indexes for the semi-join of the permission checks
+        @Index(name = "idx_acl_closure_user", columnList = "user_id, entity_type, permission, entity_id"),
+        @Index(name = "idx_acl_closure_user_num", columnList = "user_id, entity_type, permission, entity_num_id"),
+        // Index for the maintenance of the rows of an entity
+        @Index(name = "idx_acl_closure_entity", columnList = "entity_type, entity_id")
+})
+public class AclPermissionClosure {
+
+    public static final String TABLE_NAME = "acl_permission_closure";
+
+    @EmbeddedId
+    private AclPermissionClosureId id;
+
+    @Column(name = "entity_num_id")
+    private Long entityNumId;
+
+    public AclPermissionClosure() {
+    }
+
+    public AclPermissionClosure(AclPermissionClosureId id) {
+        this.id = id;
+    }
+
+    /**
+     * Checks whether the ids of the given type are stored in the numeric {@code entity_num_id} column.
+     */
+    public static boolean isNumericIdType(Class<?> idType) {
+        return idType == Long.class || idType == Integer.class || idType == Short.class || idType == Byte.class
+                || idType == long.class || idType == int.class || idType == short.class || idType == byte.class;
+    }
+
+    public AclPermissionClosureId getId() {
+        return id;
+    }
+
+    public void setId(AclPermissionClosureId id) {
+        this.id = id;
+    }
+
+    public Long getEntityNumId() {
+        return entityNumId;
+    }
+
+    public void setEntityNumId(Long entityNumId) {
+        this.entityNumId = entityNumId;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.domain;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * Composite key of the {@link AclPermissionClosure} entity. A row simply means that the user has the permission to the
+ * entity. The ids are stored in their String representation, so a single table can hold the rows of all of the entity
+ * types.
+ *
+ * @author István Rátkai (Selindek)
+ */
+@Embeddable
+public class AclPermissionClosureId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "user_id", length = 64, nullable = false)
+    private String userId;
+
+    @Column(name = "entity_type", length = 191, nullable = false)
+    private String entityType;
+
+    @Column(name = "entity_id", length = 64, nullable = false)
+    private String entityId;
+
+    @Column(name = "permission", length = 64, nullable = false)
+    private String permission;
+
+    public AclPermissionClosureId() {
+    }
+
+    public AclPermissionClosureId(String userId, String entityType, String entityId, String permission) {
+        this.userId = userId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.permission = permission;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = userId == null ? 0 : userId.hashCode();
+        result = 31 * result + (entityType == null ? 0 : entityType.hashCode());
+        result = 31 * result + (entityId == null ? 0 : entityId.hashCode());
+        return 31 * result + (permission == null ? 0 : permission.hashCode());
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof AclPermissionClosureId)) {
+            return false;
+        }
+        AclPermissionClosureId other = (AclPermissionClosureId) object;
+        return equals(userId, other.userId) && equals(entityType, other.entityType)
+                && equals(entityId, other.entityId) && equals(permission, other.permission);
+    }
+
+    private static boolean equals(String value, String otherValue) {
+        return value == null ? otherValue == null : value.equals(otherValue);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.domain;
+
+import static com.berrycloud.acl.AclConstants.PERMISSION_PREFIX_DELIMITER;
+
+import javax.persistence.Column;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.PrePersist;
+
+/**
+ * A {@link PermissionLink} what also stores its permission in a structured form: the prefix path (e.g.
+ * {@code "attachments-"}) and the permission without the prefixes (e.g. {@code "update"}) are stored in separate
+ * columns. The top level permissions have NULL prefix. The ACL checks match these columns by equality, IN and
+ * prefix-LIKE predicates instead of matching the permission column by LIKE patterns, so they can use an index on the
+ * {@code (target, permission_prefix, permission_name)} columns of the permission-link table.
+ * <p>
+ * The columns are filled from the permission automatically. The existing rows have to be migrated when an existing
+ * permission-link class is changed to this class.
+ *
+ * @param <O> Permission-Owner
+ * @param <T> Permission-Target
+ * @author István Rátkai (Selindek)
+ */
+@MappedSuperclass
+public abstract class StructuredPermissionLink<O, T> extends PermissionLink<O, T> {
+
+    public static final String PERMISSION_PREFIX_FIELD = "permissionPrefix";
+    public static final String PERMISSION_NAME_FIELD = "permissionName";
+
+    @Column(updatable = false)
+    private String permissionPrefix;
+
+    @Column(nullable = false, updatable = false)
+    private String permissionName;
+
+    public StructuredPermissionLink() {
+    }
+
+    public StructuredPermissionLink(Long id) {
+        super(id);
+    }
+
+    public StructuredPermissionLink(O owner, T target, String permission) {
+        super(owner, target, permission);
+        updateStructuredPermission();
+    }
+
+    @Override
+    public void setPermission(final String permission) {
+        super.setPermission(permission);
+        updateStructuredPermission();
+    }
+
+    public String getPermissionPrefix() {
+        return permissionPrefix;
+    }
+
+    public String getPermissionName() {
+        return permissionName;
+    }
+
+    @PrePersist
+    protected void updateStructuredPermission() {
+        String permission = getPermission();
+        if (permission == null) {
+            permissionPrefix = null;
+            permissionName = null;
+            return;
+        }
+        int index = permission.lastIndexOf(PERMISSION_PREFIX_DELIMITER) + 1;
+        permissionPrefix = index == 0 ? null : permission.substring(0, index);
+        permissionName = permission.substring(index);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.repository;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.repository.support.PageableExecutionUtils.TotalSupplier;
+import org.springframework.util.ObjectUtils;
+
+import com.berrycloud.acl.AclUtils;
+
+/**
+ * Caches the totals of the ACL-filtered page queries for a short time, so the consecutive pages of the same query
+ * don't run the count query (what evaluates the whole ACL predicate again) for every page. The totals are cached per
+ * user, domain class and query. The cache is enabled by the following property (time-to-live in milliseconds):
+ *
+ * <pre>
+ * spring.data.jpa.acl.count-cache.ttl = 30000
+ * </pre>
+ *
+ * The totals of a domain class are evicted when an entity of this class is saved or deleted through its repository.
+ * Other changes (e.g. a new permission link) are visible only after the time-to-live, so the cached totals are
+ * approximate.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclCountCache {
+
+    private static Logger LOG = LoggerFactory.getLogger(AclCountCache.class);
+
+    /**
+     * The expired totals are purged when the cache grows over this size.
+     */
+    private static final int PURGE_SIZE = 10000;
+
+    private final AclUtils aclUtils;
+    private final long ttl;
+
+    private final ConcurrentMap<CountKey, CachedCount> counts = new ConcurrentHashMap<>();
+
+    /**
+     * @param aclUtils
+     * @param ttl
+     *            the time-to-live of the cached totals in milliseconds. Zero or negative value disables the cache.
+     */
+    public AclCountCache(AclUtils aclUtils, long ttl) {
+        this.aclUtils = aclUtils;
+        this.ttl = ttl;
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * Returns the cached total of the given query for the current user, or calculates (and caches) it by the given
+     * supplier.
+     *
+     * @param domainClass
+     *            the queried domain class
+     * @param queryKey
+     *            the key of the query. It must identify the query (with its parameter values but without the paging)
+     *            by its equals() and hashCode() methods.
+     * @param supplier
+     *            the supplier of the exact total
+     * @return the total
+     */
+    public long getCount(Class<?> domainClass, Object queryKey, TotalSupplier supplier) {
+        return getCount(domainClass, queryKey, ttl, supplier);
+    }
+
+    /**
+     * Returns the cached total of the given query for the current user, or calculates (and caches it for the given
+     * time-to-live) by the given supplier. It can be used even if the cache is not enabled for the page queries.
+     *
+     * @param domainClass
+     *            the queried domain class
+     * @param queryKey
+     *            the key of the query
+     * @param ttl
+     *            the time-to-live of the total in milliseconds
+     * @param supplier
+     *            the supplier of the exact total
+     * @return the total
+     */
+    public long getCount(Class<?> domainClass, Object queryKey, long ttl, TotalSupplier supplier) {
+        if (ttl <= 0) {
+            return supplier.get();
+        }
+
+        CountKey key = new CountKey(domainClass, aclUtils.getUsername(), queryKey);
+        long now = System.currentTimeMillis();
+        CachedCount cachedCount = counts.get(key);
+        if (cachedCount != null && cachedCount.expiresAt > now) {
+            LOG.trace("Cached total of {}: {}", key, cachedCount.count);
+            return cachedCount.count;
+        }
+
+        long count = supplier.get();
+        if (counts.size() >= PURGE_SIZE) {
+            purgeExpired(now);
+        }
+        counts.put(key, new CachedCount(count, now + ttl));
+        return count;
+    }
+
+    /**
+     * Evicts all of the cached totals of the given domain class.
+     *
+     * @param domainClass
+     */
+    public void evict(Class<?> domainClass) {
+        for (Iterator<CountKey> iterator = counts.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().domainClass.equals(domainClass)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void purgeExpired(long now) {
+        for (Iterator<CachedCount> iterator = counts.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().expiresAt <= now) {
+                iterator.remove();
+            }
+        }
+        if (counts.size() >= PURGE_SIZE) {
+            LOG.debug("Count cache is full. Clearing all of the {} totals.", counts.size());
+            counts.clear();
+        }
+    }
+
+    private static class CachedCount {
+
+        private final long count;
+        private final long expiresAt;
+
+        CachedCount(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class CountKey {
+
+        private final Class<?> domainClass;
+        private final String username;
+        private final Object queryKey;
+
+        CountKey(Class<?> domainClass, String username, Object queryKey) {
+            this.domainClass = domainClass;
+            this.username = username;
+            this.queryKey = queryKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CountKey)) {
+                return false;
+            }
+            CountKey other = (CountKey) o;
+            return domainClass.equals(other.domainClass) && ObjectUtils.nullSafeEquals(username, other.username)
+                    && ObjectUtils.nullSafeEquals(queryKey, other.queryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * domainClass.hashCode() + ObjectUtils.nullSafeHashCode(username))
+                    + ObjectUtils.nullSafeHashCode(queryKey);
+        }
+
+        @Override
+        public String toString() {
+            return domainClass.getSimpleName() + "[" + username + "]" + queryKey;
+        }
+    }
+}
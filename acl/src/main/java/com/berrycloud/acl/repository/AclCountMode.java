@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.repository;
+
+/**
+ * Defines how the REST collection resources calculate the total of the permitted entities. It can be set for a
+ * repository by the {@link AclCollectionCount} annotation and for a request by the 'count' request parameter:
+ *
+ * <pre>
+ * GET /documents?count=slice
+ * </pre>
+ *
+ * @author István Rátkai (Selindek)
+ */
+public enum AclCountMode {
+
+    /**
+     * The exact total is calculated by a count query for every page. (Default)
+     */
+    EXACT,
+
+    /**
+     * No total is calculated. One more entity is loaded than the size of the page to check if there is a next page,
+     * and a slice is returned with 'next' and 'prev' links only.
+     */
+    SLICE,
+
+    /**
+     * The total is cached per user for the time-to-live set by the
+     * {@code spring.data.jpa.acl.rest.approximate-count.ttl} property, so it's only an approximate value.
+     */
+    APPROXIMATE
+}
@@ -15,13 +15,20 @@
  */
 package com.berrycloud.acl.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import javax.persistence.EntityNotFoundException;
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Repository interface extension for loading entities by non-default permission. Most ethods are used by
@@ -47,7 +54,9 @@ public interface AclJpaRepository<T, ID extends Serializable> extends PropertyRe
      *
      * @param id         the id of the entity
      * @param permission the permission we check against
-     * @return the entity with the given id
+     * @return a reference to the entity with the given id. Only the permission is checked by a query, the state of the
+     *         entity is loaded lazily (like {@link JpaRepository#getOne}).
+     *         Use {@link #findOne(Serializable, String)} to load the entity.
      * @throws EntityNotFoundException if the entity cannot be found or the current user has no proper permission to it
      */
     T getOne(ID id, String permission);
@@ -63,6 +72,91 @@ public interface AclJpaRepository<T, ID extends Serializable> extends PropertyRe
 
     List<T> findAll(Iterable<ID> ids, String permission);
 
+    /**
+     * Returns the ids from the given ones what belong to entities the current user has the given permission to. Only
+     * the ids are selected, and the ids are split into chunks of {@code spring.data.jpa.acl.in-list-chunk-size}.
+     *
+     * @param ids        the ids to check
+     * @param permission the permission we check against
+     * @return the permitted ids. Never null.
+     */
+    Set<ID> filterPermitted(Collection<ID> ids, String permission);
+
+    /**
+     * Returns the granted permissions of the current user from the given ones for every given entity. All of the
+     * permissions are evaluated in one query (per chunk of the ids) by one CASE column per permission. The entities
+     * the current user has none of the given permissions to are not in the returned map.
+     *
+     * @param ids         the ids of the entities
+     * @param permissions the permissions we check against
+     * @return the granted permissions by the ids of the entities. Never null.
+     */
+    Map<ID, Set<String>> findPermissions(Collection<ID> ids, Collection<String> permissions);
+
+    /**
+     * Returns all entities the current user has the given permission to through a forward-only cursor. The fetch size
+     * of the cursor is set by the {@code spring.data.jpa.acl.stream.fetch-size} property and the already returned
+     * entities are detached from the persistence context periodically, so they must not be modified. This method must
+     * be called in a surrounding (read-only) transaction and the returned iterator must be closed after usage.
+     *
+     * @param permission the permission we check against
+     * @return the iterator of the permitted entities
+     */
+    CloseableIterator<T> streamAll(String permission);
+
+    /**
+     * Returns all entities of the given specification the current user has the given permission to through a
+     * forward-only cursor. See {@link #streamAll(String)}.
+     *
+     * @param spec       the specification of the entities. Can be {@literal null}.
+     * @param permission the permission we check against
+     * @return the iterator of the permitted entities
+     */
+    CloseableIterator<T> streamAll(Specification<T> spec, String permission);
+
+    /**
+     * Returns the next slice of the entities the current user has read permission to using keyset (seek) pagination.
+     * The id of the entities is appended to the sort as the last (ascending) order, so the order is always total. The
+     * sort properties must not be nullable (optional), because the entities with null values would be skipped. Their
+     * type must be a String, Character, Boolean, Number, enum, UUID, Date or Calendar.
+     *
+     * @param spec       the specification of the entities. Can be {@literal null}.
+     * @param sort       the sort of the entities. Can be {@literal null}.
+     * @param keyset     the last keyset of the previous slice or {@literal null} for the first slice
+     * @param size       the maximum size of the slice
+     * @return the next slice of the permitted entities
+     * @throws IllegalArgumentException if the size is less than 1, a sort property is nullable or has an unsupported
+     *             type, or the keyset doesn't match the sort
+     */
+    KeysetSlice<T> findAllAfter(Specification<T> spec, Sort sort, List<?> keyset, int size);
+
+    /**
+     * Returns the given page of the entities the current user has read permission to without counting the total of
+     * them. One more entity is loaded than the size of the page to check if there is a next slice.
+     *
+     * @param spec     the specification of the entities. Can be {@literal null}.
+     * @param pageable the requested page
+     * @return the slice of the permitted entities
+     */
+    Slice<T> findSlice(Specification<T> spec, Pageable pageable);
+
+    /**
+     * Returns the number of the entities matching the given specification the current user has read permission to.
+     *
+     * @param spec the specification of the entities. Can be {@literal null}.
+     * @return the number of the permitted entities
+     */
+    long count(Specification<T> spec);
+
+    /**
+     * Returns the keyset of the given entity for the given sort. (The values of the sort properties and the id.)
+     *
+     * @param entity the entity
+     * @param sort   the sort of the entities. Can be {@literal null}.
+     * @return the keyset of the entity
+     */
+    List<Object> getKeyset(T entity, Sort sort);
+
     /**
      * Delete the entity without permission check. This method should be used with extreme caution. The permission
      * should be checked manually before using this method. (I.e. methods protected by {@link PreAuthorize} annotation.)
@@ -40,12 +40,19 @@ public class AclJpaRepositoryFactory extends JpaRepositoryFactory {
     private AclSpecification aclSpecification;
     private EntityManager entityManager;
     private final QueryExtractor extractor;
+    private final AclRepositorySettings settings;
 
     public AclJpaRepositoryFactory(EntityManager entityManager, AclSpecification aclSpecification) {
+        this(entityManager, aclSpecification, new AclRepositorySettings());
+    }
+
+    public AclJpaRepositoryFactory(EntityManager entityManager, AclSpecification aclSpecification,
+                                   AclRepositorySettings settings) {
         super(entityManager);
         this.aclSpecification = aclSpecification;
         this.entityManager = entityManager;
         this.extractor = PersistenceProvider.fromEntityManager(entityManager);
+        this.settings = settings;
     }
 
     @Override
@@ -64,12 +71,13 @@ public class AclJpaRepositoryFactory extends JpaRepositoryFactory {
         SimpleJpaRepository<?, ?> repository = super.getTargetRepository(information, entityManager);
         ((SimpleAclJpaRepository<?, ?>) repository)
                 .setAclSpecification(isAclRepository(information) ? aclSpecification : null);
+        ((SimpleAclJpaRepository<?, ?>) repository).setSettings(settings);
         return repository;
     }
 
     @Override
     protected QueryLookupStrategy getQueryLookupStrategy(Key key, EvaluationContextProvider evaluationContextProvider) {
         return AclJpaQueryLookupStrategy.create(entityManager, key, extractor, evaluationContextProvider,
-                aclSpecification);
+                aclSpecification, settings);
     }
 }
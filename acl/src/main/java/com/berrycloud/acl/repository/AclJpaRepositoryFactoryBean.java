@@ -15,13 +15,18 @@
  */
 package com.berrycloud.acl.repository;
 
+import com.berrycloud.acl.AclPredicateStrategy;
 import com.berrycloud.acl.AclSpecification;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
 
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import java.io.Serializable;
 
 /**
@@ -35,12 +40,74 @@ public class AclJpaRepositoryFactoryBean<T extends Repository<S, ID>, S, ID exte
     @Resource
     private AclSpecification aclSpecification;
 
+    @Resource
+    private AclCountCache aclCountCache;
+
+    /**
+     * Load the ACL-filtered pages in two phases: the permitted ids first, then the entities by these ids
+     */
+    @Value("${spring.data.jpa.acl.id-first-fetch:false}")
+    private boolean idFirstFetch;
+
+    /**
+     * Fetch size of the cursors of the streaming queries and the interval of detaching the processed entities
+     */
+    @Value("${spring.data.jpa.acl.stream.fetch-size:" + AclRepositorySettings.DEFAULT_STREAM_FETCH_SIZE + "}")
+    private int streamFetchSize;
+
+    /**
+     * Maximum number of the values in a single IN list of the bulk id queries
+     */
+    @Value("${spring.data.jpa.acl.in-list-chunk-size:" + AclRepositorySettings.DEFAULT_IN_LIST_CHUNK_SIZE + "}")
+    private int inListChunkSize;
+
+    /**
+     * Maximum number of the composite ids in a single query of the bulk id queries
+     */
+    @Value("${spring.data.jpa.acl.composite-id-chunk-size:" + AclRepositorySettings.DEFAULT_COMPOSITE_ID_CHUNK_SIZE
+            + "}")
+    private int compositeIdChunkSize;
+
+    /**
+     * Delete the permitted entities of the bulk deletes by chunked IN lists instead of a single DELETE with sub-query.
+     * If it's not set, it's turned on for the MySQL dialects.
+     */
+    @Value("${spring.data.jpa.acl.chunked-delete:}")
+    private Boolean chunkedDelete;
+
+    /**
+     * The closure table of the CLOSURE strategy is maintained by entity listeners, so the bulk deletes must remove the
+     * entities one by one
+     */
+    @Value("${spring.data.jpa.acl.strategy:JOIN}")
+    private AclPredicateStrategy strategy;
+
     public AclJpaRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
         super(repositoryInterface);
     }
 
     @Override
     protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
-        return new AclJpaRepositoryFactory(entityManager, aclSpecification);
+        AclRepositorySettings settings = new AclRepositorySettings();
+        settings.setIdFirstFetch(idFirstFetch);
+        settings.setStreamFetchSize(streamFetchSize);
+        settings.setInListChunkSize(inListChunkSize);
+        settings.setCompositeIdChunkSize(compositeIdChunkSize);
+        settings.setChunkedDelete(chunkedDelete == null ? isMySql(entityManager) : chunkedDelete);
+        settings.setPerEntityDelete(strategy == AclPredicateStrategy.CLOSURE);
+        settings.setCountCache(aclCountCache);
+        return new AclJpaRepositoryFactory(entityManager, aclSpecification, settings);
+    }
+
+    /**
+     * MySQL cannot delete from a table selected in the sub-query of the DELETE statement (error 1093)
+     */
+    private static boolean isMySql(EntityManager entityManager) {
+        try {
+            return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getDialect() instanceof MySQLDialect;
+        } catch (PersistenceException e) {
+            return false;
+        }
     }
 }
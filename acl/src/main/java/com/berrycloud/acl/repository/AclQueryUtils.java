@@ -30,8 +30,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityGraph;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToOne;
+import javax.persistence.Subgraph;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Fetch;
@@ -45,6 +48,7 @@ import javax.persistence.metamodel.Attribute.PersistentAttributeType;
 import javax.persistence.metamodel.Bindable;
 import javax.persistence.metamodel.ManagedType;
 import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.data.domain.Sort;
@@ -63,7 +67,7 @@ import org.springframework.util.Assert;
  * @author Christoph Strobl
  * @author István Rátkai (Selindek)
  */
-class AclQueryUtils {
+public class AclQueryUtils {
 
     private static final String IDENTIFIER = "[\\p{Lu}\\P{InBASIC_LATIN}\\p{Alnum}._$]+";
     private static final String IDENTIFIER_GROUP = String.format("(%s)", IDENTIFIER);
@@ -120,6 +124,80 @@ class AclQueryUtils {
 
     }
 
+    /**
+     * Returns the {@link EntityGraph} of the given query hints (e.g. the fetch or load graph of the repository method)
+     * or {@literal null} if there is none.
+     *
+     * @param hints
+     *            must not be {@literal null}.
+     * @return
+     */
+    public static EntityGraph<?> getEntityGraph(Map<String, Object> hints) {
+        for (Object hint : hints.values()) {
+            if (hint instanceof EntityGraph) {
+                return (EntityGraph<?>) hint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies the attribute nodes of the given {@link EntityGraph} to the given {@link From} as LEFT fetch joins. The
+     * existing fetch joins of the same attributes are reused. Only the associations and the element collections are
+     * fetched, because the basic attributes are loaded anyway. The fetch joins must be created before the ACL
+     * predicate, so the ACL predicate can reuse the fetched singular associations instead of joining them again.
+     *
+     * @param from
+     *            must not be {@literal null}.
+     * @param entityGraph
+     *            must not be {@literal null}.
+     */
+    public static void applyFetchGraph(From<?, ?> from, EntityGraph<?> entityGraph) {
+        applyFetches(from, entityGraph.getAttributeNodes());
+    }
+
+    private static void applyFetches(From<?, ?> from, List<AttributeNode<?>> attributeNodes) {
+        ManagedType<?> managedType = getManagedType(from.getModel());
+        if (managedType == null) {
+            return;
+        }
+        for (AttributeNode<?> attributeNode : attributeNodes) {
+            Attribute<?, ?> attribute = managedType.getAttribute(attributeNode.getAttributeName());
+            if (!attribute.isAssociation() && !attribute.isCollection()) {
+                continue;
+            }
+            Fetch<?, ?> fetch = getOrCreateFetch(from, attribute.getName());
+            if (fetch instanceof From) {
+                for (Object subgraph : attributeNode.getSubgraphs().values()) {
+                    applyFetches((From<?, ?>) fetch, ((Subgraph<?>) subgraph).getAttributeNodes());
+                }
+            }
+        }
+    }
+
+    private static ManagedType<?> getManagedType(Bindable<?> model) {
+        if (model instanceof ManagedType) {
+            return (ManagedType<?>) model;
+        }
+        if (model instanceof SingularAttribute && ((SingularAttribute<?, ?>) model).getType() instanceof ManagedType) {
+            return (ManagedType<?>) ((SingularAttribute<?, ?>) model).getType();
+        }
+        if (model instanceof PluralAttribute
+                && ((PluralAttribute<?, ?, ?>) model).getElementType() instanceof ManagedType) {
+            return (ManagedType<?>) ((PluralAttribute<?, ?, ?>) model).getElementType();
+        }
+        return null;
+    }
+
+    private static Fetch<?, ?> getOrCreateFetch(From<?, ?> from, String attribute) {
+        for (Fetch<?, ?> fetch : from.getFetches()) {
+            if (fetch.getAttribute().getName().equals(attribute) && fetch.getJoinType().equals(JoinType.LEFT)) {
+                return fetch;
+            }
+        }
+        return from.fetch(attribute, JoinType.LEFT);
+    }
+
     /**
      * Turns the given {@link Sort} into {@link javax.persistence.criteria.Order}s.
      *
@@ -189,8 +267,13 @@ class AclQueryUtils {
             propertyPathModel = from.get(segment).getModel();
         }
 
-        if (requiresJoin(propertyPathModel, model instanceof PluralAttribute) && !isAlreadyFetched(from, segment)) {
-            Join<?, ?> join = getOrCreateJoin(from, segment);
+        // Reuse the joins of the specifications and the ACL predicates (even if the association is not optional)
+        Join<?, ?> join = findJoin(from, segment, JoinType.LEFT);
+        if (join == null && requiresJoin(propertyPathModel, model instanceof PluralAttribute)
+                && !isAlreadyFetched(from, segment)) {
+            join = from.join(segment, JoinType.LEFT);
+        }
+        if (join != null) {
             return (Expression<T>) (property.hasNext() ? toExpressionRecursively(join, property.next()) : join);
         } else {
             Path<Object> path = from.get(segment);
@@ -245,23 +328,58 @@ class AclQueryUtils {
     }
 
     /**
-     * Returns an existing join for the given attribute if one already exists or creates a new one if not.
+     * Returns an existing join of the given attribute with the given join type, or creates a new one if there is none.
+     * The joins of a {@link From} are the shared join registry of the query: the specifications, the ACL predicates and
+     * the sort orders reuse each other's joins through this method, so the same association is joined only once. The
+     * joins with an ON restriction are never reused, and the fetch joins are reused only for singular attributes.
+     * <p>
+     * Note that all of the predicates of a reused collection join apply to the same element of the collection.
      *
      * @param from
      *            the {@link From} to get the current joins from.
      * @param attribute
-     *            the {@link Attribute} to look for in the current joins.
+     *            the name of the attribute to join.
+     * @param joinType
+     *            the type of the join.
      * @return will never be {@literal null}.
      */
-    private static Join<?, ?> getOrCreateJoin(From<?, ?> from, String attribute) {
+    public static Join<Object, Object> getOrCreateJoin(From<?, ?> from, String attribute, JoinType joinType) {
+        Join<Object, Object> join = findJoin(from, attribute, joinType);
+        return join == null ? from.<Object, Object> join(attribute, joinType) : join;
+    }
+
+    /**
+     * Returns the reusable join of the given attribute with the given join type (see
+     * {@link #getOrCreateJoin(From, String, JoinType)}), or {@literal null} if there is none.
+     *
+     * @param from
+     *            the {@link From} to get the current joins from.
+     * @param attribute
+     *            the name of the joined attribute.
+     * @param joinType
+     *            the type of the join.
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static Join<Object, Object> findJoin(From<?, ?> from, String attribute, JoinType joinType) {
         for (Join<?, ?> join : from.getJoins()) {
-            boolean sameName = join.getAttribute().getName().equals(attribute);
-            if (sameName && join.getJoinType().equals(JoinType.LEFT)) {
-                return join;
+            if (isReusable(join, attribute, joinType)) {
+                return (Join<Object, Object>) join;
             }
         }
+        for (Fetch<?, ?> fetch : from.getFetches()) {
+            // The fetched collection would be filtered by the predicates of the join
+            if (fetch instanceof Join && fetch.getAttribute() instanceof SingularAttribute
+                    && isReusable((Join<?, ?>) fetch, attribute, joinType)) {
+                return (Join<Object, Object>) fetch;
+            }
+        }
+        return null;
+    }
 
-        return from.join(attribute, JoinType.LEFT);
+    private static boolean isReusable(Join<?, ?> join, String attribute, JoinType joinType) {
+        return join.getAttribute().getName().equals(attribute) && join.getJoinType().equals(joinType)
+                && join.getOn() == null;
     }
 
     /**
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.repository;
+
+/**
+ * The configurable behaviour of the ACL repositories and their derived queries. It's filled by the
+ * {@link AclJpaRepositoryFactoryBean} from the spring.data.jpa.acl.* properties.
+ *
+ * @author István Rátkai (Selindek)
+ */
+public class AclRepositorySettings {
+
+    public static final int DEFAULT_STREAM_FETCH_SIZE = 100;
+
+    public static final int DEFAULT_IN_LIST_CHUNK_SIZE = 1000;
+
+    public static final int DEFAULT_COMPOSITE_ID_CHUNK_SIZE = 100;
+
+    /**
+     * The query hint of the fetch size of the cursors. (Hibernate specific.)
+     */
+    public static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+
+    private boolean idFirstFetch;
+    private int streamFetchSize = DEFAULT_STREAM_FETCH_SIZE;
+    private int inListChunkSize = DEFAULT_IN_LIST_CHUNK_SIZE;
+    private int compositeIdChunkSize = DEFAULT_COMPOSITE_ID_CHUNK_SIZE;
+    private boolean chunkedDelete;
+    private boolean perEntityDelete;
+    private AclCountCache countCache = new AclCountCache(null, 0);
+
+    /**
+     * Load the ACL-filtered pages in two phases: the ordered ids of the permitted entities first, then the entities of
+     * the page by their ids.
+     */
+    public boolean isIdFirstFetch() {
+        return idFirstFetch;
+    }
+
+    public void setIdFirstFetch(boolean idFirstFetch) {
+        this.idFirstFetch = idFirstFetch;
+    }
+
+    /**
+     * The fetch size of the cursors of the streaming queries. The processed entities are detached from the persistence
+     * context after every this many entities.
+     */
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    /**
+     * The maximum number of the values in a single IN list. The longer lists are split into multiple queries.
+     */
+    public int getInListChunkSize() {
+        return inListChunkSize;
+    }
+
+    public void setInListChunkSize(int inListChunkSize) {
+        this.inListChunkSize = inListChunkSize;
+    }
+
+    /**
+     * The maximum number of the composite ids in a single query. The composite ids are selected by a disjunction of the
+     * conjunctions of their id attributes, so every id adds one parameter per id attribute.
+     */
+    public int getCompositeIdChunkSize() {
+        return compositeIdChunkSize;
+    }
+
+    public void setCompositeIdChunkSize(int compositeIdChunkSize) {
+        this.compositeIdChunkSize = compositeIdChunkSize;
+    }
+
+    /**
+     * Select the permitted ids of the bulk deletes first and delete them by IN lists of the maximum size, instead of
+     * deleting them by a single DELETE statement with a sub-query. It's needed by the databases what cannot delete from
+     * a table selected in the sub-query of the DELETE statement (e.g. MySQL).
+     */
+    public boolean isChunkedDelete() {
+        return chunkedDelete;
+    }
+
+    public void setChunkedDelete(boolean chunkedDelete) {
+        this.chunkedDelete = chunkedDelete;
+    }
+
+    /**
+     * Load the permitted entities of the bulk deletes by chunks and remove them one by one, so the entity listeners are
+     * called. It's needed by the {@link com.berrycloud.acl.AclPredicateStrategy#CLOSURE} strategy, because the closure
+     * table is maintained by the listeners.
+     */
+    public boolean isPerEntityDelete() {
+        return perEntityDelete;
+    }
+
+    public void setPerEntityDelete(boolean perEntityDelete) {
+        this.perEntityDelete = perEntityDelete;
+    }
+
+    /**
+     * The cache of the totals of the page queries. (Disabled by default.)
+     */
+    public AclCountCache getCountCache() {
+        return countCache;
+    }
+
+    public void setCountCache(AclCountCache countCache) {
+        this.countCache = countCache;
+    }
+}
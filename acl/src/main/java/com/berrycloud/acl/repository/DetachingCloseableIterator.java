@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.data.util.CloseableIterator;
+
+/**
+ * {@link CloseableIterator} over the result of a cursor what detaches the already returned entities from the
+ * persistence context after every {@code detachInterval} entities, so the persistence context doesn't grow with the
+ * size of the result. The entities are detached when the iterator is closed too.
+ *
+ * @author István Rátkai (Selindek)
+ */
+class DetachingCloseableIterator<T> implements CloseableIterator<T> {
+
+    private final EntityManager em;
+    private final CloseableIterator<Object> delegate;
+    private final int detachInterval;
+    private final List<Object> processed;
+
+    DetachingCloseableIterator(EntityManager em, CloseableIterator<Object> delegate, int detachInterval) {
+        this.em = em;
+        this.delegate = delegate;
+        this.detachInterval = Math.max(detachInterval, 1);
+        this.processed = new ArrayList<>(this.detachInterval);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return delegate.hasNext();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (processed.size() >= detachInterval) {
+            detachProcessed();
+        }
+        Object entity = delegate.next();
+        processed.add(entity);
+        return (T) entity;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        try {
+            detachProcessed();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private void detachProcessed() {
+        for (Object entity : processed) {
+            if (entity != null && em.contains(entity)) {
+                em.detach(entity);
+            }
+        }
+        processed.clear();
+    }
+}
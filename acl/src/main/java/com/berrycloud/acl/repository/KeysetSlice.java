@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.berrycloud.acl.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * {@link org.springframework.data.domain.Slice} of a keyset (seek) pagination. It contains the keyset of the last
+ * entity of the slice, what should be used to request the next slice.
+ *
+ * @author István Rátkai (Selindek)
+ *
+ * @param <T>
+ *            the type of the entities
+ */
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Object> lastKeyset;
+
+    public KeysetSlice(List<T> content, Pageable pageable, boolean hasNext, List<Object> lastKeyset) {
+        super(content, pageable, hasNext);
+        this.lastKeyset = lastKeyset;
+    }
+
+    /**
+     * The values of the sort properties (and the id) of the last entity of this slice or null if the slice is empty.
+     */
+    public List<Object> getLastKeyset() {
+        return lastKeyset;
+    }
+}
@@ -20,12 +20,27 @@ import static com.berrycloud.acl.AclConstants.READ_PERMISSION;
 import static com.berrycloud.acl.AclConstants.UPDATE_PERMISSION;
 
 import java.io.Serializable;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
 
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
 import javax.persistence.FlushModeType;
@@ -37,6 +52,7 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Order;
@@ -45,22 +61,44 @@ import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Selection;
+import javax.persistence.criteria.Subquery;
+import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.IdentifiableType;
 import javax.persistence.metamodel.SingularAttribute;
-
+import javax.persistence.metamodel.Type;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.provider.PersistenceProvider;
 import org.springframework.data.jpa.repository.support.CrudMethodMetadata;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.jpa.repository.support.SurroundingTransactionDetectorMethodInterceptor;
 import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils.TotalSupplier;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 import com.berrycloud.acl.AclSpecification;
+import com.berrycloud.acl.domain.PermissionLink;
 
 /**
  * Default implementation of the {@link AclJpaRepository} interface. This class uses the default SimpleJpaRepository
@@ -84,11 +122,21 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
 
     private static final String ID_MUST_NOT_BE_NULL = "The given id must not be null!";
 
+    /**
+     * The supported types of the keyset sort properties
+     */
+    private static final List<Class<?>> KEYSET_TYPES = Arrays.<Class<?>> asList(String.class, Character.class,
+            Boolean.class, Number.class, Enum.class, UUID.class, Date.class, Calendar.class);
+
     private final JpaEntityInformation<T, ?> entityInformation;
     private final EntityManager em;
 
     private CrudMethodMetadata metadata;
     private AclSpecification aclSpecification;
+    private AclRepositorySettings settings = new AclRepositorySettings();
+    private volatile List<PermissionLinkReference> permissionLinkReferences;
+
+    private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
 
     /**
      * Creates a new {@link SimpleAclJpaRepository} to manage objects of the given {@link JpaEntityInformation}.
@@ -133,6 +181,16 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         this.aclSpecification = aclSpecification;
     }
 
+    /**
+     * Configures the behaviour of the ACL queries of this repository. (E.g. loading the ACL-filtered pages in two
+     * phases, or the fetch size of the streaming queries.)
+     *
+     * @param settings
+     */
+    public void setSettings(AclRepositorySettings settings) {
+        this.settings = settings;
+    }
+
     @Override
     protected CrudMethodMetadata getRepositoryMethodMetadata() {
         return metadata;
@@ -151,17 +209,18 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
     @Override
     @Transactional
     public void delete(ID id) {
-        T entity = findOne(id, DELETE_PERMISSION);
-        if (entity == null) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        if (!isPermitted(id, DELETE_PERMISSION, true)) {
             throw new EntityNotFoundException("Entity cannot be deleted");
         }
-        deleteWithoutPermissionCheck(entity);
+        deleteWithoutPermissionCheck(em.getReference(getDomainClass(), id));
     }
 
     @Override
     @Transactional
     public void deleteWithoutPermissionCheck(T entity) {
         em.remove(em.contains(entity) ? entity : em.merge(entity));
+        evictCounts();
     }
 
     /*
@@ -193,6 +252,15 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
             return;
         }
 
+        if (!entityInformation.hasCompositeId()) {
+            List<ID> ids = new ArrayList<>();
+            for (T e : entities) {
+                ids.add((ID) entityInformation.getId(e));
+            }
+            bulkDelete(ids);
+            return;
+        }
+
         List<T> list;
 
         if (aclSpecification != null) {
@@ -212,6 +280,13 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
     }
 
     protected void doDelete(List<T> list) {
+        if (settings.isPerEntityDelete()) {
+            for (T entity : list) {
+                em.remove(em.contains(entity) ? entity : em.merge(entity));
+            }
+            evictCounts();
+            return;
+        }
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaDelete<T> delete = cb.createCriteriaDelete(getDomainClass());
         Root<T> root = delete.from(getDomainClass());
@@ -221,6 +296,7 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         delete.where(inPredicate);
 
         em.createQuery(delete).executeUpdate();
+        evictCounts();
     }
 
     @Override
@@ -231,10 +307,22 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
 
         if (entityInformation.hasCompositeId()) {
 
-            List<T> results = new ArrayList<>();
-
+            List<ID> idList = new ArrayList<>();
             for (ID id : ids) {
-                results.add(findOne(id));
+                idList.add(id);
+            }
+
+            List<T> results = new ArrayList<>();
+            int chunkSize = Math.max(settings.getCompositeIdChunkSize(), 1);
+            for (int from = 0; from < idList.size(); from += chunkSize) {
+                final List<ID> chunk = idList.subList(from, Math.min(from + chunkSize, idList.size()));
+                results.addAll(getQuery(new Specification<T>() {
+
+                    @Override
+                    public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+                        return toCompositeIdPredicate(root, cb, chunk);
+                    }
+                }, (Sort) null, permission).getResultList());
             }
 
             return results;
@@ -246,6 +334,215 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         return query.setParameter(specification.parameter, ids).getResultList();
     }
 
+    /**
+     * Creates the predicate of the given id. The attributes of the composite ids ({@link javax.persistence.IdClass})
+     * are compared one by one.
+     */
+    private Predicate toIdPredicate(Root<T> root, CriteriaBuilder cb, ID id) {
+        if (entityInformation.hasCompositeId()) {
+            return toCompositeIdPredicate(root, cb, Collections.singletonList(id));
+        }
+        return cb.equal(root.get(entityInformation.getIdAttribute()), id);
+    }
+
+    /**
+     * Creates a disjunction of the conjunctions of the id attributes of the given composite ids.
+     */
+    private Predicate toCompositeIdPredicate(Root<T> root, CriteriaBuilder cb, Collection<ID> ids) {
+        List<Predicate> idPredicates = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            List<Predicate> attributePredicates = new ArrayList<>();
+            for (String idAttributeName : entityInformation.getIdAttributeNames()) {
+                Object value = entityInformation.getCompositeIdAttributeValue(id, idAttributeName);
+                Path<Object> path = getIdAttributePath(root, idAttributeName, value);
+                attributePredicates.add(value == null ? cb.isNull(path) : cb.equal(path, value));
+            }
+            idPredicates.add(cb.and(attributePredicates.toArray(new Predicate[attributePredicates.size()])));
+        }
+        return cb.or(idPredicates.toArray(new Predicate[idPredicates.size()]));
+    }
+
+    /**
+     * Returns the path of the given id attribute. If the id attribute is an association (derived identity) and the id
+     * class contains the id of the referenced entity, the path of the id of the referenced entity is returned.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Path<Object> getIdAttributePath(Root<T> root, String idAttributeName, Object value) {
+        Path<Object> path = root.get(idAttributeName);
+        if (value != null && !path.getJavaType().isInstance(value) && path.getModel() instanceof SingularAttribute) {
+            Type<?> type = ((SingularAttribute<?, ?>) path.getModel()).getType();
+            if (type instanceof IdentifiableType) {
+                IdentifiableType identifiableType = (IdentifiableType) type;
+                return path.get(identifiableType.getId(identifiableType.getIdType().getJavaType()));
+            }
+        }
+        return path;
+    }
+
+    @Override
+    public Set<ID> filterPermitted(Collection<ID> ids, String permission) {
+        return filterPermitted(ids, permission, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<ID> filterPermitted(Collection<ID> ids, String permission, boolean flush) {
+        Set<ID> permittedIds = new HashSet<>();
+        if (ids == null || ids.isEmpty()) {
+            return permittedIds;
+        }
+
+        List<ID> idList = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (entityInformation.hasCompositeId()) {
+            int chunkSize = Math.max(settings.getCompositeIdChunkSize(), 1);
+            for (int from = 0; from < idList.size(); from += chunkSize) {
+                permittedIds.addAll(filterPermittedCompositeIds(
+                        idList.subList(from, Math.min(from + chunkSize, idList.size())), permission, flush));
+            }
+            return permittedIds;
+        }
+
+        int chunkSize = Math.max(settings.getInListChunkSize(), 1);
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        for (int from = 0; from < idList.size(); from += chunkSize) {
+            CriteriaQuery<Object> query = cb.createQuery(Object.class);
+            ByIdsSpecification<T> specification = new ByIdsSpecification<>(entityInformation);
+            Root<T> root = applySpecificationToCriteria(specification, getDomainClass(), query, permission);
+            query.select(root.get(entityInformation.getIdAttribute()));
+
+            TypedQuery<Object> idQuery = bindAclParameters(em.createQuery(query));
+            idQuery.setParameter(specification.parameter,
+                    idList.subList(from, Math.min(from + chunkSize, idList.size())));
+            if (!flush) {
+                idQuery.setFlushMode(FlushModeType.COMMIT);
+            }
+            for (Object id : idQuery.getResultList()) {
+                permittedIds.add((ID) id);
+            }
+        }
+        return permittedIds;
+    }
+
+    /**
+     * Returns the permitted ids of the given chunk of composite ids. The attributes of the ids are selected and matched
+     * against the given ids, so the id class doesn't have to be instantiated.
+     */
+    private Set<ID> filterPermittedCompositeIds(final List<ID> ids, String permission, boolean flush) {
+        CriteriaQuery<Object[]> query = em.getCriteriaBuilder().createQuery(Object[].class);
+        Root<T> root = applySpecificationToCriteria(new Specification<T>() {
+
+            @Override
+            public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+                return toCompositeIdPredicate(root, cb, ids);
+            }
+        }, getDomainClass(), query, permission);
+        query.multiselect(getCompositeIdSelections(root, ids));
+
+        TypedQuery<Object[]> idQuery = bindAclParameters(em.createQuery(query));
+        if (!flush) {
+            idQuery.setFlushMode(FlushModeType.COMMIT);
+        }
+        Map<List<Object>, ID> idsByValues = getCompositeIdsByValues(ids);
+        Set<ID> permittedIds = new HashSet<>();
+        for (Object[] row : idQuery.getResultList()) {
+            ID id = idsByValues.get(Arrays.asList(row));
+            if (id != null) {
+                permittedIds.add(id);
+            }
+        }
+        return permittedIds;
+    }
+
+    /**
+     * Returns the paths of the id attributes of the given composite ids (in the order of the id attribute names).
+     */
+    private List<Selection<?>> getCompositeIdSelections(Root<T> root, List<ID> ids) {
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String idAttributeName : entityInformation.getIdAttributeNames()) {
+            Object value = entityInformation.getCompositeIdAttributeValue(ids.get(0), idAttributeName);
+            selections.add(getIdAttributePath(root, idAttributeName, value));
+        }
+        return selections;
+    }
+
+    /**
+     * Returns the given composite ids by the values of their id attributes (in the order of the id attribute names).
+     */
+    private Map<List<Object>, ID> getCompositeIdsByValues(List<ID> ids) {
+        Map<List<Object>, ID> idsByValues = new HashMap<>();
+        for (ID id : ids) {
+            List<Object> values = new ArrayList<>();
+            for (String idAttributeName : entityInformation.getIdAttributeNames()) {
+                values.add(entityInformation.getCompositeIdAttributeValue(id, idAttributeName));
+            }
+            idsByValues.put(values, id);
+        }
+        return idsByValues;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<ID, Set<String>> findPermissions(Collection<ID> ids, Collection<String> permissions) {
+        Map<ID, Set<String>> grantedPermissions = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty() || permissions == null || permissions.isEmpty()) {
+            return grantedPermissions;
+        }
+        List<String> permissionList = new ArrayList<>(new LinkedHashSet<>(permissions));
+
+        boolean compositeId = entityInformation.hasCompositeId();
+        List<ID> idList = new ArrayList<>(new LinkedHashSet<>(ids));
+        int chunkSize = Math.max(compositeId ? settings.getCompositeIdChunkSize() : settings.getInListChunkSize(), 1);
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        for (int from = 0; from < idList.size(); from += chunkSize) {
+            List<ID> chunk = idList.subList(from, Math.min(from + chunkSize, idList.size()));
+            CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+            Root<T> root = query.from(getDomainClass());
+            ByIdsSpecification<T> specification = new ByIdsSpecification<>(entityInformation);
+
+            // The id (or the attributes of the composite id) then a flag per permission
+            List<Selection<?>> selections = new ArrayList<>();
+            if (compositeId) {
+                selections.addAll(getCompositeIdSelections(root, chunk));
+            } else {
+                selections.add(root.get(entityInformation.getIdAttribute()));
+            }
+            int idSize = selections.size();
+            for (String permission : permissionList) {
+                Predicate predicate = aclSpecification == null ? cb.conjunction()
+                        : aclSpecification.toExistsPredicate(root, query, cb, permission);
+                selections.add(cb.<Integer> selectCase().when(predicate, 1).otherwise(0));
+            }
+            query.multiselect(selections).where(compositeId ? toCompositeIdPredicate(root, cb, chunk)
+                    : specification.toPredicate(root, query, cb));
+
+            TypedQuery<Object[]> matrixQuery = bindAclParameters(em.createQuery(query));
+            if (!compositeId) {
+                matrixQuery.setParameter(specification.parameter, chunk);
+            }
+            Map<List<Object>, ID> idsByValues = compositeId ? getCompositeIdsByValues(chunk) : null;
+            for (Object[] row : matrixQuery.getResultList()) {
+                ID id = compositeId ? idsByValues.get(Arrays.asList(row).subList(0, idSize)) : (ID) row[0];
+                if (id == null) {
+                    continue;
+                }
+                for (int i = 0; i < permissionList.size(); i++) {
+                    if (((Number) row[i + idSize]).intValue() == 1) {
+                        addPermission(grantedPermissions, id, permissionList.get(i));
+                    }
+                }
+            }
+        }
+        return grantedPermissions;
+    }
+
+    private void addPermission(Map<ID, Set<String>> grantedPermissions, ID id, String permission) {
+        Set<String> idPermissions = grantedPermissions.get(id);
+        if (idPermissions == null) {
+            idPermissions = new LinkedHashSet<>();
+            grantedPermissions.put(id, idPermissions);
+        }
+        idPermissions.add(permission);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -254,7 +551,177 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
     @Override
     @Transactional
     public void deleteAll() {
-        doDelete(findAll(DELETE_PERMISSION));
+        if (entityInformation.hasCompositeId()) {
+            doDelete(findAll(DELETE_PERMISSION));
+        } else {
+            bulkDelete(null);
+        }
+    }
+
+    /**
+     * Deletes the entities the current user has delete permission to by set-based DELETE statements without loading
+     * them. The {@link PermissionLink}s referring to the deleted entities are deleted too. By default the permitted
+     * entities are deleted by a single {@code DELETE ... WHERE id IN (SELECT id ... <acl predicate>)} statement (per IN
+     * list chunk of the given ids). If the domain class is referred by any {@link PermissionLink} or the chunked
+     * delete is configured, the permitted ids are selected first (so the deleted links cannot change the permissions
+     * during the delete) and the links and the entities are deleted by chunks of these ids. If the per-entity delete
+     * is configured, the chunks are loaded and removed one by one, so the entity listeners are called.
+     *
+     * @param ids
+     *            the ids of the entities to delete or {@literal null} for deleting all of the permitted entities
+     */
+    private void bulkDelete(List<ID> ids) {
+        int chunkSize = Math.max(settings.getInListChunkSize(), 1);
+        if (getPermissionLinkReferences().isEmpty() && !settings.isChunkedDelete() && !settings.isPerEntityDelete()) {
+            if (ids == null) {
+                deletePermitted(null);
+            } else {
+                for (int from = 0; from < ids.size(); from += chunkSize) {
+                    deletePermitted(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+                }
+            }
+        } else if (ids != null) {
+            List<ID> permittedIds = new ArrayList<>(filterPermitted(ids, DELETE_PERMISSION));
+            for (int from = 0; from < permittedIds.size(); from += chunkSize) {
+                deleteChunk(permittedIds.subList(from, Math.min(from + chunkSize, permittedIds.size())));
+            }
+        } else {
+            List<ID> chunk;
+            do {
+                chunk = findPermittedIds(DELETE_PERMISSION, chunkSize);
+                // Stop if nothing was deleted, otherwise the same chunk would be selected again
+            } while (!chunk.isEmpty() && deleteChunk(chunk) > 0 && chunk.size() == chunkSize);
+        }
+        evictCounts();
+    }
+
+    /**
+     * Deletes the entities with delete permission by a single DELETE statement with an ACL-filtered sub-query.
+     *
+     * @param ids
+     *            restricts the delete to these ids if not {@literal null}
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private int deletePermitted(List<ID> ids) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaDelete<T> delete = cb.createCriteriaDelete(getDomainClass());
+        Root<T> root = delete.from(getDomainClass());
+
+        Subquery<Object> subquery = delete.subquery(Object.class);
+        Root<T> subRoot = subquery.from(getDomainClass());
+        subquery.select((Expression) subRoot.get(entityInformation.getIdAttribute()));
+        ByIdsSpecification<T> specification = new ByIdsSpecification<>(entityInformation);
+        Predicate aclPredicate = aclSpecification == null ? cb.conjunction()
+                : aclSpecification.toExistsPredicate(subRoot, subquery, cb, DELETE_PERMISSION);
+        if (ids == null) {
+            subquery.where(aclPredicate);
+        } else {
+            subquery.where(specification.toPredicate(subRoot, null, cb), aclPredicate);
+        }
+        delete.where(root.get(entityInformation.getIdAttribute()).in(subquery));
+
+        Query query = bindAclParameters(em.createQuery(delete));
+        if (ids != null) {
+            query.setParameter(specification.parameter, ids);
+        }
+        return query.executeUpdate();
+    }
+
+    /**
+     * Selects the ids of maximum {@code maxResults} entities the current user has the given permission to.
+     */
+    @SuppressWarnings("unchecked")
+    private List<ID> findPermittedIds(String permission, int maxResults) {
+        CriteriaQuery<Object> query = em.getCriteriaBuilder().createQuery(Object.class);
+        Root<T> root = applySpecificationToCriteria(null, getDomainClass(), query, permission);
+        query.select(root.get(entityInformation.getIdAttribute()));
+        return (List<ID>) bindAclParameters(em.createQuery(query)).setMaxResults(maxResults).getResultList();
+    }
+
+    private int deleteChunk(List<ID> ids) {
+        return settings.isPerEntityDelete() ? removeByIds(ids) : deleteByIds(ids);
+    }
+
+    /**
+     * Removes the given entities and the {@link PermissionLink}s referring to them one by one without any permission
+     * check.
+     *
+     * @return the number of the removed entities
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private int removeByIds(List<ID> ids) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        String idName = entityInformation.getIdAttribute().getName();
+        for (PermissionLinkReference reference : getPermissionLinkReferences()) {
+            CriteriaQuery<Object> linkQuery = cb.createQuery((Class<Object>) reference.linkType);
+            Root<Object> linkRoot = linkQuery.from((Class<Object>) reference.linkType);
+            ParameterExpression<Collection> referencedIds = cb.parameter(Collection.class);
+            linkQuery.where(linkRoot.get(reference.propertyName).get(idName).in(referencedIds));
+            for (Object link : em.createQuery(linkQuery).setParameter(referencedIds, ids).getResultList()) {
+                em.remove(link);
+            }
+        }
+
+        CriteriaQuery<T> query = cb.createQuery(getDomainClass());
+        Root<T> root = query.from(getDomainClass());
+        ParameterExpression<Collection> entityIds = cb.parameter(Collection.class);
+        query.where(root.get(idName).in(entityIds));
+        List<T> entities = em.createQuery(query).setParameter(entityIds, ids).getResultList();
+        for (T entity : entities) {
+            em.remove(entity);
+        }
+        return entities.size();
+    }
+
+    /**
+     * Deletes the given entities and the {@link PermissionLink}s referring to them without any permission check.
+     *
+     * @return the number of the deleted entities
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private int deleteByIds(List<ID> ids) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        String idName = entityInformation.getIdAttribute().getName();
+        for (PermissionLinkReference reference : getPermissionLinkReferences()) {
+            CriteriaDelete<Object> linkDelete = cb.createCriteriaDelete((Class<Object>) reference.linkType);
+            Root<Object> linkRoot = linkDelete.from((Class<Object>) reference.linkType);
+            ParameterExpression<Collection> referencedIds = cb.parameter(Collection.class);
+            linkDelete.where(linkRoot.get(reference.propertyName).get(idName).in(referencedIds));
+            em.createQuery(linkDelete).setParameter(referencedIds, ids).executeUpdate();
+        }
+
+        CriteriaDelete<T> delete = cb.createCriteriaDelete(getDomainClass());
+        Root<T> root = delete.from(getDomainClass());
+        ParameterExpression<Collection> entityIds = cb.parameter(Collection.class);
+        delete.where(root.get(idName).in(entityIds));
+        return em.createQuery(delete).setParameter(entityIds, ids).executeUpdate();
+    }
+
+    /**
+     * Returns the properties of the {@link PermissionLink} entity types what can refer to the domain class as owner or
+     * target.
+     */
+    private List<PermissionLinkReference> getPermissionLinkReferences() {
+        if (permissionLinkReferences == null) {
+            List<PermissionLinkReference> references = new ArrayList<>();
+            for (EntityType<?> entityType : em.getMetamodel().getEntities()) {
+                Class<?> javaType = entityType.getJavaType();
+                if (javaType == null || !PermissionLink.class.isAssignableFrom(javaType)) {
+                    continue;
+                }
+                ResolvableType linkType = ResolvableType.forClass(javaType).as(PermissionLink.class);
+                Class<?> ownerType = linkType.resolveGeneric(0);
+                if (ownerType != null && ownerType.isAssignableFrom(getDomainClass())) {
+                    references.add(new PermissionLinkReference(javaType, "owner"));
+                }
+                Class<?> targetType = linkType.resolveGeneric(1);
+                if (targetType != null && targetType.isAssignableFrom(getDomainClass())) {
+                    references.add(new PermissionLinkReference(javaType, "target"));
+                }
+            }
+            permissionLinkReferences = references;
+        }
+        return permissionLinkReferences;
     }
 
     /*
@@ -265,7 +732,7 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
     @Override
     @Transactional
     public void deleteAllInBatch() {
-        if (aclSpecification != null) {
+        if (aclSpecification != null || settings.isPerEntityDelete()) {
             deleteAll();
             return;
         }
@@ -273,6 +740,7 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         CriteriaDelete<T> delete = cb.createCriteriaDelete(getDomainClass());
         delete.from(getDomainClass());
         em.createQuery(delete).executeUpdate();
+        evictCounts();
     }
 
     @Override
@@ -297,7 +765,7 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
 
             @Override
             public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
-                return cb.equal(root.get(entityInformation.getIdAttribute()), id);
+                return toIdPredicate(root, cb, id);
             }
 
         }, permission);
@@ -315,11 +783,11 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
 
     @Override
     public T getOne(ID id, String permission) {
-        T entity = this.findOne(id, permission);
-        if (entity == null) {
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        if (!isPermitted(id, permission, true)) {
             throw new EntityNotFoundException("Unable to find " + getDomainClass().getName() + " with id " + id);
         }
-        return entity;
+        return em.getReference(getDomainClass(), id);
     }
 
     /*
@@ -329,7 +797,39 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
      */
     @Override
     public boolean exists(ID id) {
-        return findOne(id) != null;
+        Assert.notNull(id, ID_MUST_NOT_BE_NULL);
+        return isPermitted(id, READ_PERMISSION, true);
+    }
+
+    /**
+     * Checks if the entity of the given id exists and the current user has the given permission to it. Only the id (or
+     * the first attribute of a composite id) is selected (and only one row), so the entity is not loaded.
+     *
+     * @param id
+     *            the id of the entity
+     * @param permission
+     *            the permission we check against
+     * @param flush
+     *            flush the pending changes before the query or not
+     */
+    private boolean isPermitted(final ID id, String permission, boolean flush) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Object> query = cb.createQuery(Object.class);
+        Root<T> root = applySpecificationToCriteria(new Specification<T>() {
+
+            @Override
+            public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+                return toIdPredicate(root, cb, id);
+            }
+        }, getDomainClass(), query, permission);
+        query.select(root.get(entityInformation.getIdAttribute()));
+
+        TypedQuery<Object> probeQuery = bindAclParameters(em.createQuery(query));
+        probeQuery.setMaxResults(1);
+        if (!flush) {
+            probeQuery.setFlushMode(FlushModeType.COMMIT);
+        }
+        return !probeQuery.getResultList().isEmpty();
     }
 
     /*
@@ -347,6 +847,26 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         return getQuery(null, (Sort) null, permission).getResultList();
     }
 
+    @Override
+    public CloseableIterator<T> streamAll(String permission) {
+        return streamAll(null, permission);
+    }
+
+    @Override
+    public CloseableIterator<T> streamAll(Specification<T> spec, String permission) {
+        if (!SurroundingTransactionDetectorMethodInterceptor.INSTANCE.isSurroundingTransactionActive()) {
+            throw new InvalidDataAccessApiUsageException(
+                    "You're trying to execute a streaming query method without a surrounding transaction that keeps "
+                            + "the connection open so that the iterator can actually be consumed.");
+        }
+
+        TypedQuery<T> query = getQuery(spec, (Sort) null, permission);
+        query.setHint(AclRepositorySettings.FETCH_SIZE_HINT, settings.getStreamFetchSize());
+        return new DetachingCloseableIterator<>(em,
+                PersistenceProvider.fromEntityManager(em).executeQueryWithResultStream(query),
+                settings.getStreamFetchSize());
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -367,6 +887,281 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         }
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.springframework.data.jpa.repository.JpaSpecificationExecutor#findAll(
+     * org.springframework.data.jpa.domain.Specification, org.springframework.data.domain.Pageable)
+     */
+    @Override
+    public Page<T> findAll(final Specification<T> spec, Pageable pageable) {
+        if (pageable == null) {
+            return super.findAll(spec, pageable);
+        }
+
+        List<T> content = null;
+        if (settings.isIdFirstFetch() && aclSpecification != null && !entityInformation.hasCompositeId()) {
+            content = findPageByPermittedIds(spec, pageable);
+        }
+        if (content == null) {
+            if (!isCountCached(spec)) {
+                return super.findAll(spec, pageable);
+            }
+            TypedQuery<T> query = getQuery(spec, pageable.getSort());
+            query.setFirstResult(pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+            content = query.getResultList();
+        }
+
+        return PageableExecutionUtils.getPage(content, pageable, createTotalSupplier(spec));
+    }
+
+    /**
+     * Loads the content of the given page in two phases: the permitted ids first, then the entities by these ids.
+     * Returns null if the specification sets its own selection.
+     */
+    private List<T> findPageByPermittedIds(Specification<T> spec, Pageable pageable) {
+        List<Object> ids = findPermittedIds(spec, pageable);
+        if (ids == null || ids.isEmpty()) {
+            return ids == null ? null : Collections.<T> emptyList();
+        }
+
+        ByIdsSpecification<T> specification = new ByIdsSpecification<>(entityInformation);
+        return getQuery(specification, getDomainClass(), pageable.getSort(), null)
+                .setParameter(specification.parameter, ids).getResultList();
+    }
+
+    /**
+     * Creates the supplier of the total of the page queries. The totals of the queries without specification are
+     * cached by the {@link AclCountCache} (if it's enabled), because the specifications cannot be compared.
+     */
+    private TotalSupplier createTotalSupplier(final Specification<T> spec) {
+        final TotalSupplier countSupplier = new TotalSupplier() {
+
+            @Override
+            public long get() {
+                long total = 0L;
+                for (Long count : getCountQuery(spec, getDomainClass()).getResultList()) {
+                    total += count == null ? 0 : count;
+                }
+                return total;
+            }
+        };
+        if (!isCountCached(spec)) {
+            return countSupplier;
+        }
+
+        return new TotalSupplier() {
+
+            @Override
+            public long get() {
+                return settings.getCountCache().getCount(getDomainClass(), READ_PERMISSION, countSupplier);
+            }
+        };
+    }
+
+    private boolean isCountCached(Specification<T> spec) {
+        return spec == null && aclSpecification != null && settings.getCountCache().isEnabled();
+    }
+
+    /**
+     * Selects the ordered ids of the given page of the permitted entities. The columns of the sort are selected too,
+     * because the DISTINCT queries can be ordered only by selected columns. Returns null if the specification sets
+     * its own selection.
+     */
+    private List<Object> findPermittedIds(Specification<T> spec, Pageable pageable) {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Object> query = builder.createQuery(Object.class);
+
+        Root<T> root = applySpecificationToCriteria(spec, getDomainClass(), query, READ_PERMISSION);
+        if (query.getSelection() != null) {
+            return null;
+        }
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get(entityInformation.getIdAttribute()));
+        if (pageable.getSort() != null) {
+            List<Order> orders = AclQueryUtils.toOrders(pageable.getSort(), root, builder);
+            for (Order order : orders) {
+                selections.add(order.getExpression());
+            }
+            query.orderBy(orders);
+        }
+        if (selections.size() == 1) {
+            query.select(root.get(entityInformation.getIdAttribute()));
+        } else {
+            query.multiselect(selections);
+        }
+
+        TypedQuery<Object> idQuery = bindAclParameters(em.createQuery(query));
+        idQuery.setFirstResult(pageable.getOffset());
+        idQuery.setMaxResults(pageable.getPageSize());
+
+        List<Object> ids = new ArrayList<>();
+        for (Object row : idQuery.getResultList()) {
+            ids.add(selections.size() == 1 ? row : ((Object[]) row)[0]);
+        }
+        return ids;
+    }
+
+    @Override
+    public KeysetSlice<T> findAllAfter(final Specification<T> spec, Sort sort, final List<?> keyset, int size) {
+        Assert.isTrue(size > 0, "The size of the slice must be at least 1!");
+        final Sort keysetSort = getKeysetSort(sort);
+        checkKeysetSort(keysetSort);
+
+        TypedQuery<T> query = getQuery(new Specification<T>() {
+
+            @Override
+            public Predicate toPredicate(Root<T> root, CriteriaQuery<?> criteriaQuery, CriteriaBuilder cb) {
+                Predicate predicate = spec == null ? null : spec.toPredicate(root, criteriaQuery, cb);
+                if (keyset != null) {
+                    Predicate seekPredicate = createSeekPredicate(root, cb, keysetSort, keyset);
+                    predicate = predicate == null ? seekPredicate : cb.and(predicate, seekPredicate);
+                }
+                return predicate;
+            }
+        }, keysetSort);
+
+        // One more entity is loaded to check if there is a next slice
+        query.setMaxResults(size + 1);
+        List<T> content = new ArrayList<>(query.getResultList());
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+
+        List<Object> lastKeyset = content.isEmpty() ? null : getKeyset(content.get(content.size() - 1), sort);
+        return new KeysetSlice<>(content, new PageRequest(0, size, keysetSort), hasNext, lastKeyset);
+    }
+
+    @Override
+    public Slice<T> findSlice(Specification<T> spec, Pageable pageable) {
+        TypedQuery<T> query = getQuery(spec, pageable.getSort());
+        query.setFirstResult(pageable.getOffset());
+        // One more entity is loaded to check if there is a next slice
+        query.setMaxResults(pageable.getPageSize() + 1);
+
+        List<T> content = new ArrayList<>(query.getResultList());
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, pageable.getPageSize()));
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public List<Object> getKeyset(T entity, Sort sort) {
+        BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        List<Object> keyset = new ArrayList<>();
+        for (org.springframework.data.domain.Sort.Order order : getKeysetSort(sort)) {
+            keyset.add(beanWrapper.getPropertyValue(order.getProperty()));
+        }
+        return keyset;
+    }
+
+    /**
+     * Appends the id to the given sort (if it's not in it already), so the order of the entities is total.
+     */
+    private Sort getKeysetSort(Sort sort) {
+        String idName = entityInformation.getIdAttribute().getName();
+        if (sort == null) {
+            return new Sort(idName);
+        }
+        return sort.getOrderFor(idName) == null ? sort.and(new Sort(idName)) : sort;
+    }
+
+    /**
+     * Checks that none of the properties of the given sort can be null. The seek predicate compares the values of the
+     * keyset, so the entities with null values would be skipped silently (and the position of the nulls in the order
+     * depends on the database). The type of the properties must be one of the {@link #KEYSET_TYPES}, so the keyset
+     * can be serialized into a continuation token without loss.
+     */
+    private void checkKeysetSort(Sort sort) {
+        for (org.springframework.data.domain.Sort.Order order : sort) {
+            PropertyPath path = PropertyPath.from(order.getProperty(), getDomainClass());
+            Attribute<?, ?> attribute = null;
+            while (path != null) {
+                attribute = em.getMetamodel().managedType(path.getOwningType().getType())
+                        .getAttribute(path.getSegment());
+                Assert.isTrue(
+                        attribute instanceof SingularAttribute && !((SingularAttribute<?, ?>) attribute).isOptional(),
+                        "Keyset pagination cannot be sorted by the nullable property: " + order.getProperty());
+                path = path.next();
+            }
+            Assert.isTrue(isKeysetType(ClassUtils.resolvePrimitiveIfNecessary(attribute.getJavaType())),
+                    "Keyset pagination cannot be sorted by the property of type " + attribute.getJavaType().getName()
+                            + ": " + order.getProperty());
+        }
+    }
+
+    private static boolean isKeysetType(Class<?> type) {
+        for (Class<?> keysetType : KEYSET_TYPES) {
+            if (keysetType.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a value of the keyset to the type of the sort property. The temporal values are converted by their
+     * instant (keeping the nanos of the timestamps), the other ones by the conversion service.
+     */
+    private Object toKeysetValue(Object value, Class<?> type) {
+        if (value instanceof Calendar && !type.isInstance(value)) {
+            value = ((Calendar) value).getTime();
+        }
+        if (value instanceof Date && !type.isInstance(value)) {
+            long time = ((Date) value).getTime();
+            if (Calendar.class.isAssignableFrom(type)) {
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTimeInMillis(time);
+                return calendar;
+            }
+            if (java.sql.Date.class.equals(type)) {
+                return new java.sql.Date(time);
+            }
+            if (Time.class.equals(type)) {
+                return new Time(time);
+            }
+            if (Timestamp.class.equals(type)) {
+                return new Timestamp(time);
+            }
+        }
+        return conversionService.convert(value, type);
+    }
+
+    /**
+     * Creates the seek predicate of the given keyset: (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... (Using '<' for the
+     * descending orders.)
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate createSeekPredicate(Root<T> root, CriteriaBuilder cb, Sort sort, List<?> keyset) {
+        List<Predicate> predicates = new ArrayList<>();
+        List<Predicate> equalPredicates = new ArrayList<>();
+        int index = 0;
+        for (org.springframework.data.domain.Sort.Order order : sort) {
+            Assert.isTrue(index < keyset.size(), "The keyset doesn't match the sort!");
+            Expression<Comparable> expression = AclQueryUtils
+                    .toExpressionRecursively(root, PropertyPath.from(order.getProperty(), getDomainClass()));
+            Comparable value = (Comparable) toKeysetValue(keyset.get(index++), expression.getJavaType());
+            Assert.notNull(value, "The keyset contains null value!");
+            if (order.isIgnoreCase() && String.class.equals(expression.getJavaType())) {
+                expression = (Expression) cb.lower((Expression) expression);
+                value = ((String) value).toLowerCase();
+            }
+
+            List<Predicate> stepPredicates = new ArrayList<>(equalPredicates);
+            stepPredicates
+                    .add(order.isAscending() ? cb.greaterThan(expression, value) : cb.lessThan(expression, value));
+            predicates.add(cb.and(stepPredicates.toArray(new Predicate[stepPredicates.size()])));
+            equalPredicates.add(cb.equal(expression, value));
+        }
+        Assert.isTrue(index == keyset.size(), "The keyset doesn't match the sort!");
+        return cb.or(predicates.toArray(new Predicate[predicates.size()]));
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -394,19 +1189,109 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
                 throw new EntityNotFoundException("New entity cannot be created.");
             }
             em.persist(entity);
+            evictCounts();
             return entity;
         } else {
-            FlushModeType oldMode = em.getFlushMode();
-            em.setFlushMode(FlushModeType.COMMIT);
-            getOne((ID) (entityInformation.getId(entity)), UPDATE_PERMISSION);
-            em.setFlushMode(oldMode);
+            // The changes of the entity must not be flushed before the permission check
+            ID id = (ID) entityInformation.getId(entity);
+            if (!isPermitted(id, UPDATE_PERMISSION, false)) {
+                throw new EntityNotFoundException(
+                        "Unable to find " + getDomainClass().getName() + " with id " + id);
+            }
+            evictCounts();
             return em.merge(entity);
         }
     }
 
+    /**
+     * Saves all of the given entities with the minimum number of permission checks. The create permission is checked
+     * once per entity type, the update permission of all of the existing entities is checked by chunked id queries,
+     * then the new entities are persisted and the existing ones are merged grouped by their type, so the statements
+     * of the same table follow each other. (It helps the JDBC batching.)
+     */
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public <S extends T> List<S> save(Iterable<S> entities) {
+        Assert.notNull(entities, "The given Iterable of entities not be null!");
+        List<S> entityList = new ArrayList<>();
+        for (S entity : entities) {
+            entityList.add(entity);
+        }
+        if (aclSpecification == null) {
+            List<S> result = new ArrayList<>(entityList.size());
+            for (S entity : entityList) {
+                result.add(saveWithoutPermissionCheck(entity));
+            }
+            return result;
+        }
+
+        List<Integer> newIndexes = new ArrayList<>();
+        List<Integer> existingIndexes = new ArrayList<>();
+        Map<Class<?>, Boolean> creatableTypes = new HashMap<>();
+        Set<ID> existingIds = new LinkedHashSet<>();
+        for (int i = 0; i < entityList.size(); i++) {
+            S entity = entityList.get(i);
+            if (entityInformation.isNew(entity)) {
+                Boolean creatable = creatableTypes.get(entity.getClass());
+                if (creatable == null) {
+                    creatable = aclSpecification.canBeCreated(entity);
+                    creatableTypes.put(entity.getClass(), creatable);
+                }
+                if (!creatable) {
+                    throw new EntityNotFoundException("New entity cannot be created.");
+                }
+                newIndexes.add(i);
+            } else {
+                existingIds.add((ID) entityInformation.getId(entity));
+                existingIndexes.add(i);
+            }
+        }
+
+        // The changes of the entities must not be flushed before the permission check
+        Set<ID> permittedIds = filterPermitted(existingIds, UPDATE_PERMISSION, false);
+        for (ID id : existingIds) {
+            if (!permittedIds.contains(id)) {
+                throw new EntityNotFoundException("Unable to find " + getDomainClass().getName() + " with id " + id);
+            }
+        }
+
+        Object[] result = new Object[entityList.size()];
+        for (int i : sortByType(entityList, newIndexes)) {
+            em.persist(entityList.get(i));
+            result[i] = entityList.get(i);
+        }
+        for (int i : sortByType(entityList, existingIndexes)) {
+            result[i] = em.merge(entityList.get(i));
+        }
+        evictCounts();
+
+        List<S> savedEntities = new ArrayList<>(result.length);
+        for (Object entity : result) {
+            savedEntities.add((S) entity);
+        }
+        return savedEntities;
+    }
+
+    /**
+     * Sorts the given indexes of the entities by the type of the entities. (The order of the same type is kept.)
+     */
+    private List<Integer> sortByType(final List<?> entityList, List<Integer> indexes) {
+        Collections.sort(indexes, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer index1, Integer index2) {
+                return entityList.get(index1).getClass().getName()
+                        .compareTo(entityList.get(index2).getClass().getName());
+            }
+        });
+        return indexes;
+    }
+
     @Override
     @Transactional
     public <S extends T> S saveWithoutPermissionCheck(S entity) {
+        evictCounts();
         if (entityInformation.isNew(entity)) {
             em.persist(entity);
             return entity;
@@ -415,6 +1300,13 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         }
     }
 
+    /**
+     * Evicts the cached totals of the domain class, because the saved or deleted entities may change them.
+     */
+    private void evictCounts() {
+        settings.getCountCache().evict(getDomainClass());
+    }
+
     /**
      * Creates a {@link TypedQuery} for the given {@link Specification} and {@link Sort}.
      *
@@ -455,6 +1347,12 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<S> query = builder.createQuery(domainClass);
 
+        // The entity graph is applied as fetch joins, so the ACL predicate can reuse them
+        EntityGraph<?> entityGraph = metadata == null ? null : AclQueryUtils.getEntityGraph(getQueryHints());
+        if (entityGraph != null) {
+            spec = new FetchGraphSpecification<>(spec, entityGraph);
+        }
+
         Root<S> root = applySpecificationToCriteria(spec, domainClass, query, permission);
         if (query.getSelection() == null) {
             query.select(root);
@@ -463,7 +1361,7 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
             query.orderBy(AclQueryUtils.toOrders(sort, (From<?, ?>) query.getSelection(), builder));
         }
 
-        return applyRepositoryMethodMetadata(em.createQuery(query));
+        return applyRepositoryMethodMetadata(bindAclParameters(em.createQuery(query)));
     }
 
     /**
@@ -491,7 +1389,17 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         // Remove all Orders the Specifications might have applied
         query.orderBy(Collections.<Order> emptyList());
 
-        return em.createQuery(query);
+        return bindAclParameters(em.createQuery(query));
+    }
+
+    /**
+     * Binds the parameters of the ACL predicates to the given query.
+     */
+    private <Q extends Query> Q bindAclParameters(Q query) {
+        if (aclSpecification != null) {
+            aclSpecification.bindParameters(query);
+        }
+        return query;
     }
 
     /**
@@ -544,7 +1452,10 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
 
     private void applyQueryHints(Query query) {
         for (Entry<String, Object> hint : getQueryHints().entrySet()) {
-            query.setHint(hint.getKey(), hint.getValue());
+            // The entity graph is already applied as fetch joins
+            if (!(hint.getValue() instanceof EntityGraph)) {
+                query.setHint(hint.getKey(), hint.getValue());
+            }
         }
     }
 
@@ -609,6 +1520,44 @@ public class SimpleAclJpaRepository<T, ID extends Serializable> extends SimpleJp
         }
     }
 
+    /**
+     * Specification what applies the given {@link EntityGraph} as fetch joins after the given specification, if the
+     * root is selected. (The fetched associations must be owned by a selected entity.)
+     */
+    private static final class FetchGraphSpecification<S> implements Specification<S> {
+
+        private final Specification<S> spec;
+        private final EntityGraph<?> entityGraph;
+
+        FetchGraphSpecification(Specification<S> spec, EntityGraph<?> entityGraph) {
+            this.spec = spec;
+            this.entityGraph = entityGraph;
+        }
+
+        @Override
+        public Predicate toPredicate(Root<S> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+            Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+            if (query.getSelection() == null || query.getSelection() == root) {
+                AclQueryUtils.applyFetchGraph(root, entityGraph);
+            }
+            return predicate;
+        }
+    }
+
+    /**
+     * A property of a {@link PermissionLink} entity type (owner or target) what can refer to the domain class.
+     */
+    private static final class PermissionLinkReference {
+
+        private final Class<?> linkType;
+        private final String propertyName;
+
+        PermissionLinkReference(Class<?> linkType, String propertyName) {
+            this.linkType = linkType;
+            this.propertyName = propertyName;
+        }
+    }
+
     /**
      * Specification that gives access to the {@link Parameter} instance used to bind the ids for
      * {@link SimpleJpaRepository#findAll(Iterable)}. Workaround for OpenJPA not binding collections to in-clauses
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
@@ -99,7 +100,9 @@ public class AclPermissionEvaluator implements PermissionEvaluator {
         Predicate idPredicate = builder.equal(root.get(getEntityInformation(domainClass).getIdAttribute()), targetId);
         Predicate aclPredicate = aclSpecification.toPredicate(root, query, builder, permissionString);
         query.where(builder.and(idPredicate, aclPredicate));
-        return em.createQuery(query).getSingleResult() != 0;
+        TypedQuery<Long> typedQuery = em.createQuery(query);
+        aclSpecification.bindParameters(typedQuery);
+        return typedQuery.getSingleResult() != 0;
     }
 
     protected <T> Object getId(T object) {
@@ -16,6 +16,7 @@
 package org.springframework.data.jpa.repository.query;
 
 import com.berrycloud.acl.AclSpecification;
+import com.berrycloud.acl.repository.AclRepositorySettings;
 import com.berrycloud.acl.repository.NoAcl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -116,12 +117,14 @@ public final class AclJpaQueryLookupStrategy {
 
         private final PersistenceProvider persistenceProvider;
         private final AclSpecification aclSpecification;
+        private final AclRepositorySettings settings;
 
         CreateQueryLookupStrategy(EntityManager em, QueryExtractor extractor,
-                                  AclSpecification aclSpecification) {
+                                  AclSpecification aclSpecification, AclRepositorySettings settings) {
             super(em, extractor);
             this.persistenceProvider = PersistenceProvider.fromEntityManager(em);
             this.aclSpecification = aclSpecification;
+            this.settings = settings;
         }
 
         @Override
@@ -130,7 +133,7 @@ public final class AclJpaQueryLookupStrategy {
 
             try {
                 if (needAcl) {
-                    return new PartTreeAclJpaQuery(method, em, persistenceProvider, aclSpecification);
+                    return new PartTreeAclJpaQuery(method, em, persistenceProvider, aclSpecification, settings);
                 } else {
                     return new PartTreeJpaQuery(method, em, persistenceProvider);
                 }
@@ -272,6 +275,23 @@ public final class AclJpaQueryLookupStrategy {
     public static QueryLookupStrategy create(EntityManager em, Key key, QueryExtractor extractor,
                                              EvaluationContextProvider evaluationContextProvider,
                                              AclSpecification aclSpecification) {
+        return create(em, key, extractor, evaluationContextProvider, aclSpecification,
+                new AclRepositorySettings());
+    }
+
+    /**
+     * Creates a {@link QueryLookupStrategy} for the given {@link EntityManager} and {@link Key}.
+     *
+     * @param em                        must not be {@literal null}.
+     * @param key                       may be {@literal null}.
+     * @param extractor                 must not be {@literal null}.
+     * @param evaluationContextProvider must not be {@literal null}.
+     * @param settings                  the configurable behaviour of the derived queries
+     * @return the query lookup strategy
+     */
+    public static QueryLookupStrategy create(EntityManager em, Key key, QueryExtractor extractor,
+                                             EvaluationContextProvider evaluationContextProvider,
+                                             AclSpecification aclSpecification, AclRepositorySettings settings) {
 
         Assert.notNull(em, "EntityManager must not be null!");
         Assert.notNull(extractor, "QueryExtractor must not be null!");
@@ -279,14 +299,14 @@ public final class AclJpaQueryLookupStrategy {
 
         switch (key != null ? key : Key.CREATE_IF_NOT_FOUND) {
             case CREATE:
-                return new CreateQueryLookupStrategy(em, extractor, aclSpecification);
+                return new CreateQueryLookupStrategy(em, extractor, aclSpecification, settings);
 
             case USE_DECLARED_QUERY:
                 return new DeclaredQueryLookupStrategy(em, extractor, evaluationContextProvider);
 
             case CREATE_IF_NOT_FOUND:
                 return new CreateIfNotFoundQueryLookupStrategy(em, extractor,
-                        new CreateQueryLookupStrategy(em, extractor, aclSpecification),
+                        new CreateQueryLookupStrategy(em, extractor, aclSpecification, settings),
                         new DeclaredQueryLookupStrategy(em, extractor, evaluationContextProvider));
 
             default:
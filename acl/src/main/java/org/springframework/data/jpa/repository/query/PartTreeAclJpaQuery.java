@@ -15,25 +15,42 @@
  */
 package org.springframework.data.jpa.repository.query;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.provider.PersistenceProvider;
 import org.springframework.data.jpa.repository.query.JpaQueryExecution.DeleteExecution;
 import org.springframework.data.jpa.repository.query.JpaQueryExecution.ExistsExecution;
 import org.springframework.data.jpa.repository.query.ParameterMetadataProvider.ParameterMetadata;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.repository.query.ParametersParameterAccessor;
 import org.springframework.data.repository.query.ResultProcessor;
+import org.springframework.data.repository.query.ReturnedType;
 import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils.TotalSupplier;
+import org.springframework.util.ObjectUtils;
 
 import com.berrycloud.acl.AclSpecification;
+import com.berrycloud.acl.repository.AclCountCache;
+import com.berrycloud.acl.repository.AclQueryUtils;
+import com.berrycloud.acl.repository.AclRepositorySettings;
 
 /**
  * This class is an extension of the {@link PartTreeJpaQuery} class with some addition for the Acl. Unfortunately the
@@ -55,6 +72,7 @@ public class PartTreeAclJpaQuery extends AbstractJpaQuery {
     private final EntityManager em;
 
     private final AclSpecification aclSpecification;
+    private final AclRepositorySettings settings;
 
     /**
      * Creates a new {@link PartTreeJpaQuery}.
@@ -68,6 +86,24 @@ public class PartTreeAclJpaQuery extends AbstractJpaQuery {
      */
     public PartTreeAclJpaQuery(JpaQueryMethod method, EntityManager em, PersistenceProvider persistenceProvider,
             AclSpecification aclSpecification) {
+        this(method, em, persistenceProvider, aclSpecification, new AclRepositorySettings());
+    }
+
+    /**
+     * Creates a new {@link PartTreeJpaQuery}.
+     *
+     * @param method
+     *            must not be {@literal null}.
+     * @param em
+     *            must not be {@literal null}.
+     * @param persistenceProvider
+     *            must not be {@literal null}.
+     * @param settings
+     *            the configurable behaviour of the query (e.g. loading the entities of collection and page queries in
+     *            two phases or the fetch size of the stream queries)
+     */
+    public PartTreeAclJpaQuery(JpaQueryMethod method, EntityManager em, PersistenceProvider persistenceProvider,
+            AclSpecification aclSpecification, AclRepositorySettings settings) {
 
         super(method, em);
 
@@ -77,9 +113,29 @@ public class PartTreeAclJpaQuery extends AbstractJpaQuery {
         this.parameters = method.getParameters();
 
         this.aclSpecification = aclSpecification;
+        this.settings = settings;
 
         this.countQuery = new CountQueryPreparer(persistenceProvider);
-        this.query = tree.isCountProjection() ? countQuery : new QueryPreparer(persistenceProvider);
+        if (tree.isCountProjection()) {
+            this.query = countQuery;
+        } else if (settings.isIdFirstFetch() && supportsIdFirstFetch(method)) {
+            this.query = new IdFirstQueryPreparer(persistenceProvider,
+                    JpaEntityInformationSupport.getEntityInformation(domainClass, em));
+        } else {
+            this.query = new QueryPreparer(persistenceProvider);
+        }
+    }
+
+    /**
+     * Checks if the entities of the given method can be loaded in two phases. Slice queries are not supported, because
+     * their execution changes the limit of the query after it's created.
+     */
+    private boolean supportsIdFirstFetch(JpaQueryMethod method) {
+        return !tree.isDelete() && !tree.isExistsProjection()
+                && (method.isCollectionQuery() || method.isPageQuery())
+                && !method.getResultProcessor().getReturnedType().isProjecting()
+                && !parameters.hasDynamicProjection()
+                && !JpaEntityInformationSupport.getEntityInformation(domainClass, em).hasCompositeId();
     }
 
     /*
@@ -89,7 +145,12 @@ public class PartTreeAclJpaQuery extends AbstractJpaQuery {
      */
     @Override
     public Query doCreateQuery(Object[] values) {
-        return query.createQuery(values);
+        Query jpaQuery = query.createQuery(values);
+        if (getQueryMethod().isStreamQuery()) {
+            // The stream execution reads the result through a forward-only cursor
+            jpaQuery.setHint(AclRepositorySettings.FETCH_SIZE_HINT, settings.getStreamFetchSize());
+        }
+        return jpaQuery;
     }
 
     /*
@@ -115,11 +176,77 @@ public class PartTreeAclJpaQuery extends AbstractJpaQuery {
             return new DeleteExecution(em);
         } else if (this.tree.isExistsProjection()) {
             return new ExistsExecution();
+        } else if (getQueryMethod().isPageQuery() && settings.getCountCache().isEnabled()) {
+            return new CachedCountPagedExecution();
         }
 
         return super.getExecution();
     }
 
+    /**
+     * Creates the key of the count query of the given parameter values for the {@link AclCountCache}. The paging and
+     * sorting parameters are left out, so the consecutive pages of the same query share the same key.
+     */
+    private List<Object> createCountKey(Object[] values) {
+        List<Object> key = new ArrayList<>(values.length + 1);
+        key.add(this);
+        for (Object value : values) {
+            if (value instanceof Pageable || value instanceof Sort) {
+                continue;
+            }
+            key.add(ObjectUtils.isArray(value) ? Arrays.asList(ObjectUtils.toObjectArray(value)) : value);
+        }
+        return key;
+    }
+
+    /**
+     * Execution of the page queries what reuses the totals cached by the {@link AclCountCache} for the consecutive
+     * pages of the same query instead of running the count query for every page.
+     */
+    private class CachedCountPagedExecution extends JpaQueryExecution {
+
+        @Override
+        protected Object doExecute(final AbstractJpaQuery repositoryQuery, final Object[] values) {
+            ParametersParameterAccessor accessor = new ParametersParameterAccessor(parameters, values);
+            Query jpaQuery = repositoryQuery.createQuery(values);
+
+            final TotalSupplier countSupplier = new TotalSupplier() {
+
+                @Override
+                public long get() {
+                    List<?> totals = repositoryQuery.createCountQuery(values).getResultList();
+                    return totals.size() == 1 ? ((Number) totals.get(0)).longValue() : totals.size();
+                }
+            };
+
+            return PageableExecutionUtils.getPage(jpaQuery.getResultList(), accessor.getPageable(),
+                    new TotalSupplier() {
+
+                        @Override
+                        public long get() {
+                            return settings.getCountCache().getCount(domainClass, createCountKey(values),
+                                    countSupplier);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Applies the entity graph of the query method to the given root as fetch joins, if the root is selected. (The
+     * fetched associations must be owned by a selected entity, so the count and projecting queries are skipped.)
+     */
+    private void applyFetchGraph(CriteriaQuery<?> criteriaQuery, Root<?> root) {
+        JpaEntityGraph entityGraph = getQueryMethod().getEntityGraph();
+        if (entityGraph == null || criteriaQuery.getSelection() != root) {
+            return;
+        }
+        EntityGraph<?> fetchGraph = AclQueryUtils
+                .getEntityGraph(Jpa21Utils.tryGetFetchGraphHints(em, entityGraph, domainClass));
+        if (fetchGraph != null) {
+            AclQueryUtils.applyFetchGraph(root, fetchGraph);
+        }
+    }
+
     /**
      * Query preparer to create {@link CriteriaQuery} instances and potentially cache them.
      *
@@ -151,10 +278,13 @@ public class PartTreeAclJpaQuery extends AbstractJpaQuery {
             CriteriaBuilder cb = em.getCriteriaBuilder();
             @SuppressWarnings("unchecked")
             Root<Object> root = (Root<Object>) criteriaQuery.getRoots().iterator().next();
+            // The fetch joins of the entity graph must be created first, so the ACL predicate can reuse them
+            applyFetchGraph(criteriaQuery, root);
             criteriaQuery.where(
                     cb.and(criteriaQuery.getRestriction(), aclSpecification.toPredicate(root, criteriaQuery, cb)));
 
             TypedQuery<?> jpaQuery = createQuery(criteriaQuery);
+            aclSpecification.bindParameters(jpaQuery);
 
             return restrictMaxResultsIfNecessary(invokeBinding(getBinder(values, expressions), jpaQuery));
         }
@@ -235,13 +365,110 @@ public class PartTreeAclJpaQuery extends AbstractJpaQuery {
             return new CriteriaQueryParameterBinder(parameters, values, expressions);
         }
 
-        private Sort getDynamicSort(Object[] values) {
+        protected Sort getDynamicSort(Object[] values) {
 
             return parameters.potentiallySortsDynamically()
                     ? new ParametersParameterAccessor(parameters, values).getSort() : null;
         }
     }
 
+    /**
+     * Special {@link QueryPreparer} to load the entities in two phases. The first query selects only the ordered ids of
+     * the requested page of the permitted entities (with the columns of the sort, because the DISTINCT queries can be
+     * ordered only by selected columns). The returned query loads the entities of these ids without any ACL joins.
+     */
+    private class IdFirstQueryPreparer extends QueryPreparer {
+
+        private final JpaEntityInformation<?, ?> entityInformation;
+
+        public IdFirstQueryPreparer(PersistenceProvider persistenceProvider,
+                JpaEntityInformation<?, ?> entityInformation) {
+            super(persistenceProvider);
+            this.entityInformation = entityInformation;
+        }
+
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public Query createQuery(Object[] values) {
+            List<?> rows = super.createQuery(values).getResultList();
+            List<Object> ids = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                ids.add(row instanceof Object[] ? ((Object[]) row)[0] : row);
+            }
+
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Object> criteriaQuery = cb.createQuery((Class<Object>) domainClass);
+            Root<Object> root = criteriaQuery.from((Class<Object>) domainClass);
+            ParameterExpression<Iterable> parameter = cb.parameter(Iterable.class);
+            criteriaQuery.select(root);
+            applyFetchGraph(criteriaQuery, root);
+            criteriaQuery.where(ids.isEmpty() ? cb.disjunction()
+                    : root.get(entityInformation.getIdAttribute().getName()).in(parameter));
+
+            Sort dynamicSort = getDynamicSort(values);
+            Sort sort = tree.getSort() == null ? dynamicSort : tree.getSort().and(dynamicSort);
+            criteriaQuery.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+            TypedQuery<Object> jpaQuery = getEntityManager().createQuery(criteriaQuery);
+            return ids.isEmpty() ? jpaQuery : jpaQuery.setParameter(parameter, ids);
+        }
+
+        @Override
+        protected JpaQueryCreator createCreator(ParametersParameterAccessor accessor,
+                PersistenceProvider persistenceProvider) {
+
+            EntityManager entityManager = getEntityManager();
+            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+            ParameterMetadataProvider provider = accessor == null
+                    ? new ParameterMetadataProvider(builder, parameters, persistenceProvider)
+                    : new ParameterMetadataProvider(builder, accessor, persistenceProvider);
+
+            return new IdQueryCreator(tree, getQueryMethod().getResultProcessor().getReturnedType(), builder, provider,
+                    entityInformation.getIdAttribute().getName());
+        }
+    }
+
+    /**
+     * {@link JpaQueryCreator} selecting the ids (and the sort columns) of the entities instead of the entities.
+     */
+    private static class IdQueryCreator extends JpaQueryCreator {
+
+        private final String idAttributeName;
+
+        IdQueryCreator(PartTree tree, ReturnedType type, CriteriaBuilder builder,
+                ParameterMetadataProvider provider, String idAttributeName) {
+            super(tree, type, builder, provider);
+            this.idAttributeName = idAttributeName;
+        }
+
+        @Override
+        protected CriteriaQuery<? extends Object> createCriteriaQuery(CriteriaBuilder builder, ReturnedType type) {
+            return builder.createQuery(Object.class);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected CriteriaQuery<? extends Object> complete(Predicate predicate, Sort sort,
+                CriteriaQuery<? extends Object> query, CriteriaBuilder builder, Root<?> root) {
+
+            CriteriaQuery<Object> idQuery = (CriteriaQuery<Object>) query;
+            List<Order> orders = QueryUtils.toOrders(sort, root, builder);
+            List<Selection<?>> selections = new ArrayList<>();
+            selections.add(root.get(idAttributeName));
+            for (Order order : orders) {
+                selections.add(order.getExpression());
+            }
+            if (selections.size() == 1) {
+                idQuery.select(root.get(idAttributeName));
+            } else {
+                idQuery.multiselect(selections);
+            }
+            idQuery.orderBy(orders);
+            return predicate == null ? idQuery : idQuery.where(predicate);
+        }
+    }
+
     /**
      * Special {@link QueryPreparer} to create count queries.
      *
@@ -15,29 +15,69 @@
  */
 package org.springframework.data.rest.webmvc;
 
+import static com.berrycloud.acl.AclConstants.READ_PERMISSION;
+
+import java.io.IOException;
 import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils.TotalSupplier;
 import org.springframework.data.repository.support.Repositories;
 import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
+import org.springframework.data.rest.core.mapping.ResourceType;
 import org.springframework.data.rest.webmvc.support.BackendId;
 import org.springframework.data.rest.webmvc.support.DefaultedPageable;
 import org.springframework.data.rest.webmvc.support.ETag;
 import org.springframework.data.rest.webmvc.support.RepositoryEntityLinks;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceSupport;
 import org.springframework.hateoas.Resources;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.orm.jpa.JpaObjectRetrievalFailureException;
+import org.springframework.util.Assert;
+import org.springframework.util.Base64Utils;
+import org.springframework.util.ObjectUtils;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.berrycloud.acl.repository.AclCollectionCount;
+import com.berrycloud.acl.repository.AclCountCache;
+import com.berrycloud.acl.repository.AclCountMode;
+import com.berrycloud.acl.repository.AclJpaRepository;
+import com.berrycloud.acl.repository.KeysetSlice;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RepositoryRestController
 public class RepositoryAclEntityController extends RepositoryEntityController {
@@ -46,10 +86,52 @@ public class RepositoryAclEntityController extends RepositoryEntityController {
 
     private static final String ACCEPT_HEADER = "Accept";
 
+    /**
+     * Request parameter of the keyset pagination. An empty value requests the first slice.
+     */
+    private static final String CONTINUATION_PARAMETER = "continuation";
+
+    /**
+     * Keys of the temporal values of the continuation token
+     */
+    private static final String TIME_KEY = "time";
+    private static final String NANOS_KEY = "nanos";
+
+    /**
+     * Request parameter of the {@link AclCountMode} of the collection resource.
+     */
+    private static final String COUNT_PARAMETER = "count";
+
+    /**
+     * Request parameters of the permission matrix resource
+     */
+    private static final String ID_PARAMETER = "id";
+    private static final String PERMISSION_PARAMETER = "permission";
+
+    private final Repositories repositories;
+
+    private final RepositoryRestConfiguration config;
+
+    private final AclCountCache countCache;
+
+    /**
+     * Time-to-live of the totals of the {@link AclCountMode#APPROXIMATE} count mode in milliseconds
+     */
+    private final long approximateCountTtl;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
     public RepositoryAclEntityController(Repositories repositories, RepositoryRestConfiguration config,
             RepositoryEntityLinks entityLinks, PagedResourcesAssembler<Object> assembler,
-            HttpHeadersPreparer headersPreparer) {
+            HttpHeadersPreparer headersPreparer, AclCountCache countCache,
+            @Value("${spring.data.jpa.acl.rest.approximate-count.ttl:60000}") long approximateCountTtl) {
         super(repositories, config, entityLinks, assembler, headersPreparer);
+        this.repositories = repositories;
+        this.config = config;
+        this.countCache = countCache;
+        this.approximateCountTtl = approximateCountTtl;
     }
 
     /** {@inheritDoc} */
@@ -74,7 +156,281 @@ public class RepositoryAclEntityController extends RepositoryEntityController {
     public Resources<?> getCollectionResource(@QuerydslPredicate RootResourceInformation resourceInformation,
             DefaultedPageable pageable, Sort sort, PersistentEntityResourceAssembler assembler)
             throws ResourceNotFoundException, HttpRequestMethodNotSupportedException {
-        return super.getCollectionResource(resourceInformation, pageable, sort, assembler);
+        AclJpaRepository<Object, ?> repository = getAclRepository(resourceInformation);
+        AclCountMode countMode = repository == null ? AclCountMode.EXACT : getDefaultCountMode(resourceInformation);
+        if (countMode == AclCountMode.EXACT) {
+            return super.getCollectionResource(resourceInformation, pageable, sort, assembler);
+        }
+        return getCollectionResource(resourceInformation, repository, countMode, pageable, assembler);
+    }
+
+    /**
+     * Returns the collection resource using the {@link AclCountMode} of the 'count' request parameter.
+     */
+    @ResponseBody
+    @RequestMapping(value = BASE_MAPPING, method = RequestMethod.GET, params = { COUNT_PARAMETER,
+            "!" + CONTINUATION_PARAMETER })
+    public Resources<?> getCollectionResourceWithCountMode(
+            @QuerydslPredicate RootResourceInformation resourceInformation,
+            @RequestParam(COUNT_PARAMETER) String count, DefaultedPageable pageable, Sort sort,
+            PersistentEntityResourceAssembler assembler) throws ResourceNotFoundException,
+            HttpRequestMethodNotSupportedException, ServletRequestBindingException {
+
+        AclCountMode countMode;
+        try {
+            countMode = AclCountMode.valueOf(count.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            throw new ServletRequestBindingException("Invalid count mode: " + count);
+        }
+
+        AclJpaRepository<Object, ?> repository = getAclRepository(resourceInformation);
+        if (countMode == AclCountMode.EXACT || repository == null) {
+            return super.getCollectionResource(resourceInformation, pageable, sort, assembler);
+        }
+        return getCollectionResource(resourceInformation, repository, countMode, pageable, assembler);
+    }
+
+    private Resources<?> getCollectionResource(RootResourceInformation resourceInformation,
+            final AclJpaRepository<Object, ?> repository, AclCountMode countMode, DefaultedPageable pageable,
+            PersistentEntityResourceAssembler assembler) throws HttpRequestMethodNotSupportedException {
+
+        resourceInformation.verifySupportedMethod(HttpMethod.GET, ResourceType.COLLECTION);
+
+        // The collection resource lists all of the readable entities
+        final Specification<Object> spec = null;
+        Slice<Object> slice = repository.findSlice(spec, pageable.getPageable());
+        if (countMode == AclCountMode.SLICE) {
+            return toSliceResources(slice, assembler);
+        }
+
+        final Class<?> domainType = resourceInformation.getDomainType();
+        Page<Object> page = PageableExecutionUtils.getPage(slice.getContent(), pageable.getPageable(),
+                new TotalSupplier() {
+
+                    @Override
+                    public long get() {
+                        return countCache.getCount(domainType, new CountQueryKey(spec, READ_PERMISSION),
+                                approximateCountTtl, new TotalSupplier() {
+
+                                    @Override
+                                    public long get() {
+                                        return repository.count(spec);
+                                    }
+                                });
+                    }
+                });
+        return toResources(page, assembler, domainType, null);
+    }
+
+    /**
+     * Renders the given slice with 'prev' and 'next' links only.
+     */
+    private Resources<?> toSliceResources(Slice<Object> slice, PersistentEntityResourceAssembler assembler) {
+        List<Resource<?>> content = new ArrayList<>();
+        for (Object entity : slice) {
+            content.add(assembler.toResource(entity));
+        }
+
+        List<Link> links = new ArrayList<>();
+        links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString()));
+        if (slice.hasPrevious()) {
+            links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam(config.getPageParamName(), slice.getNumber() - 1).build().toUriString(),
+                    Link.REL_PREVIOUS));
+        }
+        if (slice.hasNext()) {
+            links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam(config.getPageParamName(), slice.getNumber() + 1).build().toUriString(),
+                    Link.REL_NEXT));
+        }
+        return new Resources<>(content, links);
+    }
+
+    /**
+     * Returns the ACL repository of the given resource or null if it's not an ACL repository.
+     */
+    @SuppressWarnings("unchecked")
+    private AclJpaRepository<Object, ?> getAclRepository(RootResourceInformation resourceInformation) {
+        Object repository = repositories.getRepositoryFor(resourceInformation.getDomainType());
+        return repository instanceof AclJpaRepository ? (AclJpaRepository<Object, ?>) repository : null;
+    }
+
+    private AclCountMode getDefaultCountMode(RootResourceInformation resourceInformation) {
+        AclCollectionCount collectionCount = AnnotationUtils.findAnnotation(repositories
+                .getRepositoryInformationFor(resourceInformation.getDomainType()).getRepositoryInterface(),
+                AclCollectionCount.class);
+        return collectionCount == null ? AclCountMode.EXACT : collectionCount.value();
+    }
+
+    /**
+     * Returns the next slice of the collection resource using keyset pagination. The 'next' link contains the
+     * continuation token of the next slice.
+     */
+    @ResponseBody
+    @RequestMapping(value = BASE_MAPPING, method = RequestMethod.GET, params = CONTINUATION_PARAMETER)
+    @SuppressWarnings("unchecked")
+    public Resources<?> getCollectionResourceSlice(RootResourceInformation resourceInformation,
+            @RequestParam(CONTINUATION_PARAMETER) String continuation, DefaultedPageable pageable, Sort sort,
+            PersistentEntityResourceAssembler assembler) throws ResourceNotFoundException,
+            HttpRequestMethodNotSupportedException, ServletRequestBindingException {
+
+        resourceInformation.verifySupportedMethod(HttpMethod.GET, ResourceType.COLLECTION);
+
+        Object repository = repositories.getRepositoryFor(resourceInformation.getDomainType());
+        if (!(repository instanceof AclJpaRepository)) {
+            throw new HttpRequestMethodNotSupportedException(HttpMethod.GET.name());
+        }
+
+        KeysetSlice<Object> slice;
+        try {
+            slice = ((AclJpaRepository<Object, ?>) repository).findAllAfter(null, sort,
+                    decodeContinuation(continuation), pageable.getPageable().getPageSize());
+        } catch (ConversionException | IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            // The token doesn't match the sort or a sort property is nullable or has an unsupported type (the
+            // repository proxy translates the IllegalArgumentException)
+            throw new ServletRequestBindingException(
+                    "Invalid continuation token: " + continuation + " (" + e.getMessage() + ")");
+        }
+
+        List<Resource<?>> content = new ArrayList<>();
+        for (Object entity : slice) {
+            content.add(assembler.toResource(entity));
+        }
+
+        List<Link> links = new ArrayList<>();
+        links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString()));
+        if (slice.hasNext()) {
+            links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam(CONTINUATION_PARAMETER, encodeContinuation(slice.getLastKeyset()))
+                    .build().toUriString(), Link.REL_NEXT));
+        }
+        return new Resources<>(content, links);
+    }
+
+    /**
+     * Returns the granted permissions of the current user for the given entities. All of the permissions of all of the
+     * entities are evaluated in a single query, so the clients can get the flags of a whole page by one request:
+     *
+     * <pre>
+     * GET /documents/permissions?id=1&amp;id=2&amp;permission=update&amp;permission=delete
+     * </pre>
+     */
+    @ResponseBody
+    @RequestMapping(value = BASE_MAPPING + "/permissions", method = RequestMethod.GET, params = {ID_PARAMETER,
+            PERMISSION_PARAMETER })
+    @SuppressWarnings("unchecked")
+    public PermissionMatrixResource getPermissionMatrix(RootResourceInformation resourceInformation,
+            @RequestParam(ID_PARAMETER) List<String> ids, @RequestParam(PERMISSION_PARAMETER) List<String> permissions)
+            throws HttpRequestMethodNotSupportedException, ServletRequestBindingException {
+
+        resourceInformation.verifySupportedMethod(HttpMethod.GET, ResourceType.COLLECTION);
+
+        AclJpaRepository<Object, Serializable> repository = (AclJpaRepository<Object, Serializable>) getAclRepository(
+                resourceInformation);
+        if (repository == null) {
+            throw new HttpRequestMethodNotSupportedException(HttpMethod.GET.name());
+        }
+
+        Class<?> idType = resourceInformation.getPersistentEntity().getIdProperty().getType();
+        List<Serializable> entityIds = new ArrayList<>();
+        try {
+            for (String id : ids) {
+                entityIds.add((Serializable) conversionService.convert(id, idType));
+            }
+        } catch (ConversionException e) {
+            throw new ServletRequestBindingException("Invalid id: " + ids);
+        }
+
+        Map<String, Set<String>> matrix = new LinkedHashMap<>();
+        for (Entry<Serializable, Set<String>> entry : repository.findPermissions(entityIds, permissions).entrySet()) {
+            matrix.put(conversionService.convert(entry.getKey(), String.class), entry.getValue());
+        }
+        return new PermissionMatrixResource(matrix);
+    }
+
+    /**
+     * The granted permissions by the ids of the entities.
+     */
+    public static class PermissionMatrixResource extends ResourceSupport {
+
+        private final Map<String, Set<String>> permissions;
+
+        PermissionMatrixResource(Map<String, Set<String>> permissions) {
+            this.permissions = permissions;
+        }
+
+        public Map<String, Set<String>> getPermissions() {
+            return permissions;
+        }
+    }
+
+    /**
+     * Encodes the keyset as a base64 encoded JSON array. The temporal values (Date, Calendar) are encoded as
+     * {"time": epoch-millis, "nanos": nanos} objects, so they keep their instant and the precision of the timestamps.
+     * The enums are encoded by their names, and all the other values as strings. (The repository converts them back to
+     * the types of the sort properties.)
+     */
+    private String encodeContinuation(List<Object> keyset) {
+        List<Object> values = new ArrayList<>();
+        for (Object value : keyset) {
+            values.add(toTokenValue(value));
+        }
+        try {
+            return Base64Utils.encodeToUrlSafeString(objectMapper.writeValueAsBytes(values));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode the continuation token", e);
+        }
+    }
+
+    private Object toTokenValue(Object value) {
+        if (value instanceof Calendar) {
+            value = ((Calendar) value).getTime();
+        }
+        if (value instanceof Date) {
+            Map<String, Long> temporal = new LinkedHashMap<>();
+            temporal.put(TIME_KEY, ((Date) value).getTime());
+            if (value instanceof Timestamp) {
+                temporal.put(NANOS_KEY, (long) ((Timestamp) value).getNanos());
+            }
+            return temporal;
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return conversionService.convert(value, String.class);
+    }
+
+    private List<?> decodeContinuation(String continuation) throws ServletRequestBindingException {
+        if (continuation.isEmpty()) {
+            return null;
+        }
+        try {
+            List<Object> keyset = new ArrayList<>();
+            for (Object value : objectMapper.readValue(Base64Utils.decodeFromUrlSafeString(continuation),
+                    List.class)) {
+                keyset.add(fromTokenValue(value));
+            }
+            return keyset;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ServletRequestBindingException("Invalid continuation token: " + continuation);
+        }
+    }
+
+    private Object fromTokenValue(Object value) {
+        if (value instanceof String) {
+            return value;
+        }
+        Assert.isInstanceOf(Map.class, value);
+        Object time = ((Map<?, ?>) value).get(TIME_KEY);
+        Object nanos = ((Map<?, ?>) value).get(NANOS_KEY);
+        Assert.isInstanceOf(Number.class, time);
+        if (nanos == null) {
+            return new Date(((Number) time).longValue());
+        }
+        Assert.isInstanceOf(Number.class, nanos);
+        Timestamp timestamp = new Timestamp(((Number) time).longValue());
+        timestamp.setNanos(((Number) nanos).intValue());
+        return timestamp;
     }
 
     /** {@inheritDoc} */
@@ -171,4 +527,41 @@ public class RepositoryAclEntityController extends RepositoryEntityController {
         }
     }
 
+    /**
+     * Key of the cached totals of the collection resources. The totals of the different specifications (and of the
+     * page queries of the repository) are cached separately. The specifications are compared by identity.
+     */
+    private static class CountQueryKey {
+
+        private final Specification<?> spec;
+        private final String permission;
+
+        CountQueryKey(Specification<?> spec, String permission) {
+            this.spec = spec;
+            this.permission = permission;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CountQueryKey)) {
+                return false;
+            }
+            CountQueryKey other = (CountQueryKey) o;
+            return spec == other.spec && ObjectUtils.nullSafeEquals(permission, other.permission);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(spec) + ObjectUtils.nullSafeHashCode(permission);
+        }
+
+        @Override
+        public String toString() {
+            return "collection[" + permission + "]" + (spec == null ? "" : spec);
+        }
+    }
+
 }
@@ -0,0 +1,16 @@
+package com.berrycloud.acl;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.berrycloud.acl.sample.all.AclAppAll;
+
+/**
+ * Runs all of the repository tests using the {@link AclPredicateStrategy#ADAPTIVE} strategy. The statistics are
+ * sampled for every query and the small test tables are not forced to the JOIN strategy, so both strategies are used.
+ */
+@SpringBootTest(classes = AclAppAll.class, properties = { "spring.data.jpa.acl.strategy=ADAPTIVE",
+        "spring.data.jpa.acl.adaptive.sample-interval=0", "spring.data.jpa.acl.adaptive.min-row-count=0",
+        "spring.data.jpa.acl.adaptive.max-join-fan-out=1" })
+public class AclAdaptiveStrategyRepositoryIntegrationTest extends AclAllRepositoryIntegrationTest {
+
+}
@@ -4,18 +4,28 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
@@ -25,22 +35,39 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.support.PageableExecutionUtils.TotalSupplier;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.orm.jpa.JpaObjectRetrievalFailureException;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.berrycloud.acl.data.AclMetaData;
+import com.berrycloud.acl.data.PermissionData;
+import com.berrycloud.acl.data.PermissionPlan;
+import com.berrycloud.acl.data.PermissionRegistry;
 import com.berrycloud.acl.domain.SimpleAclRole;
 import com.berrycloud.acl.domain.SimpleAclUser;
+import com.berrycloud.acl.repository.AclCountCache;
+import com.berrycloud.acl.repository.AclQueryUtils;
+import com.berrycloud.acl.repository.KeysetSlice;
 import com.berrycloud.acl.sample.all.AclAppAll;
 import com.berrycloud.acl.sample.all.entity.Attachment;
 import com.berrycloud.acl.sample.all.entity.Document;
+import com.berrycloud.acl.sample.all.entity.Membership;
+import com.berrycloud.acl.sample.all.entity.MembershipId;
 import com.berrycloud.acl.sample.all.entity.Person;
+import com.berrycloud.acl.sample.all.entity.PersonHasDocumentPermission;
 import com.berrycloud.acl.sample.all.entity.PersonHasPersonPermission;
 import com.berrycloud.acl.sample.all.entity.Project;
 import com.berrycloud.acl.sample.all.entity.TestGroup;
@@ -48,6 +75,7 @@ import com.berrycloud.acl.sample.all.entity.Theme;
 import com.berrycloud.acl.sample.all.repository.AttachmentRepository;
 import com.berrycloud.acl.sample.all.repository.DocumentRepository;
 import com.berrycloud.acl.sample.all.repository.GroupRepository;
+import com.berrycloud.acl.sample.all.repository.MembershipRepository;
 import com.berrycloud.acl.sample.all.repository.PersonHasPersonRepository;
 import com.berrycloud.acl.sample.all.repository.PersonRepository;
 import com.berrycloud.acl.sample.all.repository.PersonRepositoryNoAcl;
@@ -72,9 +100,18 @@ public class AclAllRepositoryIntegrationTest {
     @Autowired
     private AclUtils aclUtils;
 
+    @Autowired
+    private AclMetaData aclMetaData;
+
+    @Autowired
+    private AclSpecification aclSpecification;
+
     @Autowired
     private AclUserDetailsService<?> aclUserDetailsService;
 
+    @Autowired
+    private PermissionEvaluator permissionEvaluator;
+
     @Autowired
     private PersonRepository personRepository;
 
@@ -102,6 +139,9 @@ public class AclAllRepositoryIntegrationTest {
     @Autowired
     private ThemeRepository themeRepository;
 
+    @Autowired
+    private MembershipRepository membershipRepository;
+
     @Autowired
     private PersonService personService;
 
@@ -516,6 +556,16 @@ public class AclAllRepositoryIntegrationTest {
         assertTrue(personService.loadPerson(user.getId(), AclConstants.READ_PERMISSION));
     }
 
+    @Test
+    public void testGivenGrantedPermissionWhenCallPermissionEvaluatorThenReturnTrue() {
+        setAuthentication("user");
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertTrue(permissionEvaluator.hasPermission(authentication, user, AclConstants.READ_PERMISSION));
+        assertTrue(permissionEvaluator.hasPermission(authentication, user.getId(), Person.class.getName(),
+                AclConstants.READ_PERMISSION));
+        assertFalse(permissionEvaluator.hasPermission(authentication, admin, AclConstants.UPDATE_PERMISSION));
+    }
+
     @Test(expected = AccessDeniedException.class)
     public void testGivenUserAuthenticationWhenCallAuthorizedMethodByIdWithoutPermissionThenThrowException() {
         setAuthentication("user");
@@ -725,4 +775,425 @@ public class AclAllRepositoryIntegrationTest {
 
         assertTrue(personRepository.exists(user.getId()));
     }
+
+    @Test
+    public void testGivenAttachmentWhenGetPermissionPlanThenPlanIsCompiledOnceFromMetaData() {
+        AclPermissionPlanner planner = new AclPermissionPlanner(aclMetaData, 2);
+        PermissionPlan plan = planner.getPermissionPlan(Attachment.class, "update");
+
+        assertSame(plan, planner.getPermissionPlan(Attachment.class, "update"));
+        assertFalse(plan.isSelf());
+        assertThat(plan.getOwners().size(), is(1));
+        assertThat(plan.getOwnerGroups().size(), is(1));
+        assertThat(plan.getParents().size(), is(1));
+        PermissionPlan parentPlan = plan.getParents().get(0).getPlan();
+        assertThat(parentPlan.getPermission(), is("attachments-update"));
+        assertTrue(parentPlan.getEntityType() == Document.class);
+        assertTrue(planner.getPermissionPlan(Theme.class, "update").isEmpty());
+    }
+
+    @Test
+    public void testGivenPermissionDataWhenCheckPermissionsThenMasksAreUsed() {
+        PermissionRegistry registry = aclMetaData.getPermissionRegistry();
+        assertSame(registry.getPermission("attachments-delete"), registry.getPermission("attachments-delete"));
+
+        PermissionData permissionData = new PermissionData(new String[]{"attachments-all", "update"}, registry);
+        assertTrue(permissionData.hasPermission("attachments-delete"));
+        assertTrue(permissionData.hasPermission("attachments-read"));
+        assertTrue(permissionData.hasPermission("update"));
+        assertTrue(permissionData.hasPermission("read"));
+        assertFalse(permissionData.hasPermission("delete"));
+        assertFalse(permissionData.hasPermission("documents-delete"));
+    }
+
+    @Test
+    public void testGivenUnknownPermissionWhenCheckPermissionThenItIsNotInterned() {
+        PermissionRegistry registry = aclMetaData.getPermissionRegistry();
+        PermissionData permissionData = new PermissionData(new String[]{"attachments-all", "update"}, registry);
+        int size = registry.size();
+
+        assertFalse(registry.findPermission("attachments-unknown").isInterned());
+        assertTrue(permissionData.hasPermission("attachments-unknown"));
+        assertFalse(permissionData.hasPermission("unknown"));
+        assertFalse(permissionData.hasPermission("unknown-prefix-unknown"));
+        AclPermissionPlanner planner = new AclPermissionPlanner(aclMetaData, 2);
+        assertNotSame(planner.getPermissionPlan(Person.class, "unknown"),
+                planner.getPermissionPlan(Person.class, "unknown"));
+        assertThat(registry.size(), is(size));
+    }
+
+    @Test
+    public void testGivenAuthenticationWhenGetRoleDecisionThenDecisionIsBasedOnFingerprint() {
+        AclRoleDecisionTable decisionTable = new AclRoleDecisionTable(aclMetaData);
+        PermissionRegistry registry = aclMetaData.getPermissionRegistry();
+
+        setAuthentication("user");
+        BitSet fingerprint = aclUtils.getAuthorityFingerprint(aclMetaData.getAuthorityRegistry());
+        assertSame(fingerprint, aclUtils.getAuthorityFingerprint(aclMetaData.getAuthorityRegistry()));
+        assertThat(decisionTable.getDecision(fingerprint, Attachment.class, registry.getPermission("read")),
+                is(AclRoleDecision.NEEDS_PREDICATE));
+        assertThat(decisionTable.getDecision(fingerprint, Theme.class, registry.getPermission("delete")),
+                is(AclRoleDecision.GRANT_ALL));
+
+        setAuthentication("admin");
+        fingerprint = aclUtils.getAuthorityFingerprint(aclMetaData.getAuthorityRegistry());
+        assertThat(decisionTable.getDecision(fingerprint, Document.class, registry.getPermission("delete")),
+                is(AclRoleDecision.GRANT_ALL));
+
+        setAuthentication(null);
+        fingerprint = aclUtils.getAuthorityFingerprint(aclMetaData.getAuthorityRegistry());
+        assertThat(decisionTable.getDecision(fingerprint, Attachment.class, registry.getPermission("read")),
+                is(AclRoleDecision.DENY));
+    }
+
+    @Test
+    public void testGivenOwnedDocumentsWhenFindPageThenPermittedPageIsReturnedInOrder() {
+        for (int i = 0; i < 5; i++) {
+            documentRepository.saveWithoutPermissionCheck(new Document("doc" + i, "content", user));
+        }
+        documentRepository.saveWithoutPermissionCheck(new Document("doc5", "content", user2));
+        setAuthentication("user");
+
+        Page<Document> page = documentRepository.findAll(new PageRequest(1, 2, Direction.DESC, "name"));
+        assertThat(page.getTotalElements(), is(5L));
+        assertThat(page.getContent().size(), is(2));
+        assertThat(page.getContent().get(0).getName(), is("doc2"));
+        assertThat(page.getContent().get(1).getName(), is("doc1"));
+
+        page = documentRepository.findByCreatorId(user.getId(), new PageRequest(0, 3, Direction.ASC, "name"));
+        assertThat(page.getTotalElements(), is(5L));
+        assertThat(page.getContent().size(), is(3));
+        assertThat(page.getContent().get(0).getName(), is("doc0"));
+        assertThat(page.getContent().get(2).getName(), is("doc2"));
+    }
+
+    @Test
+    public void testGivenOwnedDocumentsWhenStreamAllThenPermittedDocumentsAreIteratedAndDetached() {
+        for (int i = 0; i < 3; i++) {
+            documentRepository.saveWithoutPermissionCheck(new Document("doc" + i, "content", user));
+        }
+        documentRepository.saveWithoutPermissionCheck(new Document("doc3", "content", user2));
+        setAuthentication("user");
+
+        List<Document> documents = new ArrayList<>();
+        try (CloseableIterator<Document> iterator = documentRepository.streamAll("read")) {
+            while (iterator.hasNext()) {
+                documents.add(iterator.next());
+            }
+        }
+        assertThat(documents.size(), is(3));
+        for (Document document : documents) {
+            assertFalse(em.contains(document));
+        }
+    }
+
+    @Test
+    public void testGivenIdsWhenFilterPermittedThenOnlyPermittedIdsAreReturned() {
+        Document ownDocument = documentRepository.saveWithoutPermissionCheck(new Document("doc0", "content", user));
+        Document otherDocument = documentRepository
+                .saveWithoutPermissionCheck(new Document("doc1", "content", user2));
+        setAuthentication("user");
+
+        Set<Integer> ids = documentRepository.filterPermitted(
+                Arrays.asList(ownDocument.getId(), otherDocument.getId(), -1), "read");
+        assertThat(ids, is(Collections.singleton(ownDocument.getId())));
+        assertTrue(documentRepository.filterPermitted(Collections.<Integer> emptyList(), "read").isEmpty());
+    }
+
+    @Test
+    public void testGivenSpecificationJoinWhenCreateAclPredicateThenTheJoinIsReused() {
+        setAuthentication("user");
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Attachment> query = cb.createQuery(Attachment.class);
+        Root<Attachment> root = query.from(Attachment.class);
+        Join<Object, Object> document = AclQueryUtils.getOrCreateJoin(root, "document", JoinType.LEFT);
+
+        aclSpecification.toPredicate(root, query, cb, "read");
+        int documentJoins = 0;
+        for (Join<?, ?> join : root.getJoins()) {
+            if ("document".equals(join.getAttribute().getName())) {
+                documentJoins++;
+            }
+        }
+        assertThat(documentJoins, is(1));
+        assertSame(document, AclQueryUtils.getOrCreateJoin(root, "document", JoinType.LEFT));
+    }
+
+    @Test
+    public void testGivenOwnerAndParentPropertyWhenCreateAclPredicateThenThePropertyIsJoinedOnce() {
+        setAuthentication("user");
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Attachment> query = cb.createQuery(Attachment.class);
+        Root<Attachment> root = query.from(Attachment.class);
+
+        aclSpecification.toPredicate(root, query, cb, "read");
+        Set<String> joinedProperties = new HashSet<>();
+        for (Join<?, ?> join : root.getJoins()) {
+            assertTrue(joinedProperties.add(join.getAttribute().getName()));
+        }
+        assertTrue(joinedProperties.contains("document"));
+    }
+
+    @Test
+    public void testGivenAclStrategyAnnotationWhenCreateAclPredicateThenTheEntityStrategyIsUsed() {
+        assertThat(aclMetaData.getAclEntityMetaData(Project.class).getStrategy(), is(AclPredicateStrategy.EXISTS));
+        setAuthentication("user");
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Project> query = cb.createQuery(Project.class);
+        Root<Project> root = query.from(Project.class);
+
+        aclSpecification.toPredicate(root, query, cb, "read");
+        assertTrue(root.getJoins().isEmpty());
+        assertFalse(query.isDistinct());
+    }
+
+    @Test
+    public void testGivenEntityGraphWhenFindByNameThenCreatorIsFetchedWithTheDocument() {
+        documentRepository.saveWithoutPermissionCheck(new Document("doc0", "content", user));
+        em.flush();
+        em.clear();
+        setAuthentication("user");
+
+        List<Document> documents = documentRepository.findByName("doc0");
+        assertThat(documents.size(), is(1));
+        assertTrue(em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(documents.get(0), "creator"));
+    }
+
+    @Test
+    public void testGivenLinkedDocumentsWhenDeleteAllThenPermittedDocumentsAndTheirLinksAreDeleted() {
+        Document ownDocument = documentRepository.saveWithoutPermissionCheck(new Document("doc0", "content", user));
+        Document otherDocument = documentRepository
+                .saveWithoutPermissionCheck(new Document("doc1", "content", user2));
+        PersonHasDocumentPermission ownLink = new PersonHasDocumentPermission(user3, ownDocument, "read");
+        PersonHasDocumentPermission otherLink = new PersonHasDocumentPermission(user, otherDocument, "read");
+        em.persist(ownLink);
+        em.persist(otherLink);
+        setAuthentication("user");
+
+        documentRepository.deleteAll();
+        em.clear();
+        assertNull(em.find(Document.class, ownDocument.getId()));
+        assertNull(em.find(PersonHasDocumentPermission.class, ownLink.getId()));
+        assertNotNull(em.find(Document.class, otherDocument.getId()));
+        assertNotNull(em.find(PersonHasDocumentPermission.class, otherLink.getId()));
+    }
+
+    @Test
+    public void testGivenStructuredPrefixedPermissionLinkWhenFindOneThenPermissionIsMatchedByItsParts() {
+        Document document = documentRepository.saveWithoutPermissionCheck(new Document("doc0", "content", user2));
+        Attachment attachment = attachmentRepository
+                .saveWithoutPermissionCheck(new Attachment("name", "content", null, document));
+        PersonHasDocumentPermission link = new PersonHasDocumentPermission(user3, document, "attachments-update");
+        assertThat(link.getPermissionPrefix(), is("attachments-"));
+        assertThat(link.getPermissionName(), is("update"));
+        em.persist(link);
+        setAuthentication("user3");
+
+        // The prefixed permissions don't grant the top level read permission
+        assertNull(documentRepository.findOne(document.getId()));
+        assertNotNull(attachmentRepository.findOne(attachment.getId()));
+        assertNotNull(attachmentRepository.findOne(attachment.getId(), "update"));
+        assertNull(attachmentRepository.findOne(attachment.getId(), "delete"));
+    }
+
+    @Test
+    public void testGivenNewAndOwnedDocumentsWhenSaveAllThenAllAreSavedInOrder() {
+        Document ownDocument = documentRepository.saveWithoutPermissionCheck(new Document("doc0", "content", user));
+        setAuthentication("user");
+
+        ownDocument.setContent("changed");
+        List<Document> saved = documentRepository
+                .save(Arrays.asList(new Document("doc1", "content", user), ownDocument));
+        assertThat(saved.size(), is(2));
+        assertThat(saved.get(0).getName(), is("doc1"));
+        assertNotNull(saved.get(0).getId());
+        assertThat(saved.get(1).getContent(), is("changed"));
+    }
+
+    @Test(expected = JpaObjectRetrievalFailureException.class)
+    public void testGivenNotPermittedDocumentWhenSaveAllThenThrowException() {
+        Document otherDocument = documentRepository
+                .saveWithoutPermissionCheck(new Document("doc0", "content", user2));
+        setAuthentication("user");
+        documentRepository.save(Arrays.asList(otherDocument));
+    }
+
+    @Test
+    public void testGivenDocumentsWhenFindPermissionsThenGrantedPermissionsAreReturnedById() {
+        Document ownDocument = documentRepository.saveWithoutPermissionCheck(new Document("doc0", "content", user));
+        Document otherDocument = documentRepository
+                .saveWithoutPermissionCheck(new Document("doc1", "content", user2));
+        List<Integer> ids = Arrays.asList(ownDocument.getId(), otherDocument.getId());
+        List<String> permissions = Arrays.asList("read", "update", "delete");
+
+        setAuthentication("user");
+        Map<Integer, Set<String>> matrix = documentRepository.findPermissions(ids, permissions);
+        assertThat(matrix.size(), is(1));
+        assertThat(matrix.get(ownDocument.getId()), is((Set<String>) new HashSet<>(permissions)));
+
+        setAuthentication("admin");
+        matrix = documentRepository.findPermissions(ids, permissions);
+        assertThat(matrix.size(), is(2));
+        assertThat(matrix.get(otherDocument.getId()), is((Set<String>) new HashSet<>(permissions)));
+    }
+
+    @Test
+    public void testGivenCompositeIdsWhenCallFindAllByIdsThenReturnOnlyPermittedEntities() {
+        List<MembershipId> ids = createMemberships();
+        setAuthentication("user");
+        List<Membership> memberships = membershipRepository.findAll(ids);
+        assertThat(memberships.size(), is(1));
+        assertThat(memberships.get(0).getName(), is("own"));
+    }
+
+    @Test
+    public void testGivenCompositeIdsWhenCallFilterPermittedThenReturnOnlyPermittedIds() {
+        List<MembershipId> ids = createMemberships();
+        setAuthentication("user");
+        assertThat(membershipRepository.filterPermitted(ids, "read"), is(Collections.singleton(ids.get(0))));
+        setAuthentication("admin");
+        assertThat(membershipRepository.filterPermitted(ids, "read"), is((Set<MembershipId>) new HashSet<>(ids)));
+    }
+
+    @Test
+    public void testGivenCompositeIdsWhenCallFindPermissionsThenReturnMatrixOfPermittedIds() {
+        List<MembershipId> ids = createMemberships();
+        List<String> permissions = Arrays.asList("read", "update");
+        setAuthentication("user");
+        Map<MembershipId, Set<String>> matrix = membershipRepository.findPermissions(ids, permissions);
+        assertThat(matrix.size(), is(1));
+        assertThat(matrix.get(ids.get(0)), is((Set<String>) new HashSet<>(permissions)));
+    }
+
+    @Test
+    public void testGivenCompositeIdWhenCallGetOnePermittedEntityThenReturnReference() {
+        List<MembershipId> ids = createMemberships();
+        setAuthentication("user");
+        assertThat(membershipRepository.getOne(ids.get(0)).getName(), is("own"));
+        assertTrue(membershipRepository.exists(ids.get(0)));
+        assertFalse(membershipRepository.exists(ids.get(1)));
+    }
+
+    @Test(expected = JpaObjectRetrievalFailureException.class)
+    public void testGivenCompositeIdWhenCallGetOneNotPermittedEntityThenThrowException() {
+        List<MembershipId> ids = createMemberships();
+        setAuthentication("user");
+        membershipRepository.getOne(ids.get(1));
+    }
+
+    @Test
+    public void testGivenCompositeIdWhenCallDeletePermittedEntityThenEntityIsDeleted() {
+        List<MembershipId> ids = createMemberships();
+        setAuthentication("user");
+        membershipRepository.delete(ids.get(0));
+        assertNull(membershipRepository.findOneWithoutPermissionCheck(ids.get(0)));
+        assertNotNull(membershipRepository.findOneWithoutPermissionCheck(ids.get(1)));
+    }
+
+    @Test(expected = JpaObjectRetrievalFailureException.class)
+    public void testGivenCompositeIdWhenCallDeleteNotPermittedEntityThenThrowException() {
+        List<MembershipId> ids = createMemberships();
+        setAuthentication("user");
+        membershipRepository.delete(ids.get(1));
+    }
+
+    /**
+     * Creates a membership owned by user and one owned by user2 in the same team and returns their ids
+     */
+    private List<MembershipId> createMemberships() {
+        membershipRepository.saveWithoutPermissionCheck(new Membership(1, "own", user));
+        membershipRepository.saveWithoutPermissionCheck(new Membership(1, "other", user2));
+        return Arrays.asList(new MembershipId(1, "own"), new MembershipId(1, "other"));
+    }
+
+    @Test
+    public void testGivenCountCacheWhenGetCountThenTotalIsReusedUntilEvicted() {
+        final long[] calls = new long[1];
+        TotalSupplier supplier = new TotalSupplier() {
+
+            @Override
+            public long get() {
+                return ++calls[0];
+            }
+        };
+        AclCountCache countCache = new AclCountCache(aclUtils, 60000L);
+        setAuthentication("user");
+
+        assertThat(countCache.getCount(Document.class, "read", supplier), is(1L));
+        assertThat(countCache.getCount(Document.class, "read", supplier), is(1L));
+        assertThat(countCache.getCount(Project.class, "read", supplier), is(2L));
+
+        setAuthentication("user2");
+        assertThat(countCache.getCount(Document.class, "read", supplier), is(3L));
+
+        countCache.evict(Document.class);
+        assertThat(countCache.getCount(Document.class, "read", supplier), is(4L));
+        assertThat(countCache.getCount(Project.class, "read", supplier), is(2L));
+
+        assertThat(new AclCountCache(aclUtils, 0L).getCount(Document.class, "read", supplier), is(5L));
+    }
+
+    @Test
+    public void testGivenAdminWhenFindAllAfterKeysetThenNextSlicesAreReturned() {
+        setAuthentication("admin");
+        Sort sort = new Sort("username");
+
+        KeysetSlice<Person> slice = personRepository.findAllAfter(null, sort, null, 2);
+        assertThat(slice.getContent().size(), is(2));
+        assertThat(slice.getContent().get(0).getUsername(), is("admin"));
+        assertThat(slice.getContent().get(1).getUsername(), is("user"));
+        assertTrue(slice.hasNext());
+        assertThat(slice.getLastKeyset(), is(personRepository.getKeyset(user, sort)));
+
+        slice = personRepository.findAllAfter(null, sort, slice.getLastKeyset(), 2);
+        assertThat(slice.getContent().size(), is(2));
+        assertThat(slice.getContent().get(0).getUsername(), is("user2"));
+        assertThat(slice.getContent().get(1).getUsername(), is("user3"));
+        assertFalse(slice.hasNext());
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testGivenNullableSortPropertyWhenFindAllAfterThenExceptionIsThrown() {
+        setAuthentication("admin");
+        personRepository.findAllAfter(null, new Sort("lastName"), null, 2);
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testGivenZeroSizeWhenFindAllAfterThenExceptionIsThrown() {
+        setAuthentication("admin");
+        personRepository.findAllAfter(null, new Sort("username"), null, 0);
+    }
+
+    @Test
+    public void testGivenTemporalSortPropertyWhenFindAllAfterThenNextSlicesAreReturned() {
+        createTheme("theme1", 1500000000123L);
+        Theme theme2 = createTheme("theme2", 1500000000456L);
+        createTheme("theme3", 1500000000789L);
+        setAuthentication("user");
+        Sort sort = new Sort(Direction.DESC, "created");
+
+        KeysetSlice<Theme> slice = themeRepository.findAllAfter(null, sort, null, 2);
+        assertThat(slice.getContent().size(), is(2));
+        assertThat(slice.getContent().get(0).getName(), is("theme3"));
+        assertThat(slice.getContent().get(1).getName(), is("theme2"));
+        assertTrue(slice.hasNext());
+
+        slice = themeRepository.findAllAfter(null, sort, slice.getLastKeyset(), 2);
+        assertThat(slice.getContent().size(), is(1));
+        assertThat(slice.getContent().get(0).getName(), is("theme1"));
+        assertFalse(slice.hasNext());
+
+        // The keyset of a Date property can be given by a Calendar too
+        Calendar created = Calendar.getInstance();
+        created.setTime(theme2.getCreated());
+        slice = themeRepository.findAllAfter(null, sort, Arrays.asList(created, theme2.getId()), 2);
+        assertThat(slice.getContent().size(), is(1));
+        assertThat(slice.getContent().get(0).getName(), is("theme1"));
+    }
+
+    private Theme createTheme(String name, long created) {
+        Theme theme = new Theme(name, "content");
+        theme.setCreated(new Date(created));
+        return themeRepository.saveWithoutPermissionCheck(theme);
+    }
 }
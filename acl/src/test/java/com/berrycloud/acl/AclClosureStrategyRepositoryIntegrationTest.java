@@ -0,0 +1,155 @@
+package com.berrycloud.acl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.berrycloud.acl.sample.all.AclAppAll;
+import com.berrycloud.acl.sample.all.entity.Attachment;
+import com.berrycloud.acl.domain.AclPermissionClosure;
+import com.berrycloud.acl.sample.all.entity.Document;
+import com.berrycloud.acl.sample.all.entity.Person;
+import com.berrycloud.acl.sample.all.entity.TestGroup;
+import com.berrycloud.acl.sample.all.repository.DocumentRepository;
+import com.berrycloud.acl.sample.all.repository.GroupRepository;
+
+/**
+ * Runs all of the repository tests using the {@link AclPredicateStrategy#CLOSURE} strategy.
+ */
+@SpringBootTest(classes = AclAppAll.class, properties = "spring.data.jpa.acl.strategy=CLOSURE")
+public class AclClosureStrategyRepositoryIntegrationTest extends AclAllRepositoryIntegrationTest {
+
+    @Autowired
+    private AclPermissionClosureManager permissionClosureManager;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testGivenClosureStrategyWhenStartAppThenPrefixedParentPermissionsAreMaterialized() {
+        assertTrue(permissionClosureManager.isMaterialized(Attachment.class, "update"));
+        assertTrue(permissionClosureManager.isMaterialized(Document.class, "attachments-update"));
+        assertFalse(permissionClosureManager.isMaterialized(Attachment.class, "attachments-update"));
+        assertFalse(permissionClosureManager.isMaterialized(Document.class, "execute"));
+    }
+
+    @Test
+    public void testGivenClosureStrategyWhenDeleteInBatchThenClosureRowsOfDeletedEntitiesAreRemoved() {
+        Person owner = new Person("closureOwner", "c", "c");
+        em.persist(owner);
+        Document document = documentRepository.saveWithoutPermissionCheck(new Document("doc0", "content", owner));
+        assertTrue(countClosureRows(document) > 0);
+
+        setAuthentication("closureOwner");
+        documentRepository.deleteInBatch(Collections.singletonList(document));
+        assertThat(countClosureRows(document), is(0L));
+    }
+
+    @Test
+    public void testGivenClosureStrategyWhenRemoveGroupMembershipThenGroupIsNotReadableAnyMore() {
+        // The steps are committed, so the uncommitted test data is not needed
+        TestTransaction.end();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final Integer[] ids = new Integer[3];
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    Person creator = new Person("closureCreator", "c", "c");
+                    Person member = new Person("closureMember", "m", "m");
+                    TestGroup group = new TestGroup("closureGroup", creator);
+                    member.getGroups().add(group);
+                    group.getMembers().add(member);
+                    em.persist(creator);
+                    em.persist(member);
+                    em.persist(group);
+                    ids[0] = creator.getId();
+                    ids[1] = member.getId();
+                    ids[2] = group.getId();
+                }
+            });
+
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    setAuthentication("closureMember");
+                    TestGroup group = groupRepository.findOne(ids[2]);
+                    assertNotNull(group);
+
+                    Person member = em.find(Person.class, ids[1]);
+                    member.getGroups().remove(group);
+                    group.getMembers().remove(member);
+                    assertNull(groupRepository.findOne(ids[2]));
+                }
+            });
+
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    setAuthentication("closureMember");
+                    assertNull(groupRepository.findOne(ids[2]));
+                }
+            });
+        } finally {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    if (ids[1] != null) {
+                        Person member = em.find(Person.class, ids[1]);
+                        member.getGroups().clear();
+                        em.remove(member);
+                    }
+                    if (ids[2] != null) {
+                        em.remove(em.find(TestGroup.class, ids[2]));
+                    }
+                    if (ids[0] != null) {
+                        em.remove(em.find(Person.class, ids[0]));
+                    }
+                }
+            });
+            setAuthentication(null);
+        }
+    }
+
+    private long countClosureRows(Document document) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<AclPermissionClosure> closure = query.from(AclPermissionClosure.class);
+        query.select(cb.count(closure));
+        query.where(cb.equal(closure.get("id").get("entityType"), Document.class.getName()),
+                cb.equal(closure.get("entityNumId"), document.getId().longValue()));
+        return em.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,13 @@
+package com.berrycloud.acl;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.berrycloud.acl.sample.all.AclAppAll;
+
+/**
+ * Runs all of the repository tests using the {@link AclPredicateStrategy#EXISTS} strategy.
+ */
+@SpringBootTest(classes = AclAppAll.class, properties = "spring.data.jpa.acl.strategy=EXISTS")
+public class AclExistsStrategyRepositoryIntegrationTest extends AclAllRepositoryIntegrationTest {
+
+}
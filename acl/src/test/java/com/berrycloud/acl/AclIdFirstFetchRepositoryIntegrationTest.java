@@ -0,0 +1,13 @@
+package com.berrycloud.acl;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.berrycloud.acl.sample.all.AclAppAll;
+
+/**
+ * Runs all of the repository tests with two-phase (id-first) fetching of the pages.
+ */
+@SpringBootTest(classes = AclAppAll.class, properties = "spring.data.jpa.acl.id-first-fetch=true")
+public class AclIdFirstFetchRepositoryIntegrationTest extends AclAllRepositoryIntegrationTest {
+
+}
@@ -0,0 +1,101 @@
+package com.berrycloud.acl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.berrycloud.acl.domain.SimpleAclRole;
+import com.berrycloud.acl.sample.all.AclAppAll;
+import com.berrycloud.acl.sample.all.entity.Folder;
+import com.berrycloud.acl.sample.all.entity.Person;
+import com.berrycloud.acl.sample.all.repository.FolderRepository;
+import com.berrycloud.acl.sample.all.repository.PersonRepository;
+import com.berrycloud.acl.sample.all.repository.RoleRepository;
+import com.berrycloud.acl.security.AclUserDetails;
+import com.berrycloud.acl.security.AclUserDetailsService;
+
+@SpringBootTest(classes = AclAppAll.class, properties = "spring.data.jpa.acl.recursive-parents=true")
+@RunWith(SpringRunner.class)
+@Transactional
+public class AclRecursiveParentIntegrationTest {
+
+    @Autowired
+    private AclUserDetailsService<?> aclUserDetailsService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    private Folder root, leaf;
+
+    @Before
+    public void initTests() {
+        SimpleAclRole userRole = new SimpleAclRole(AclConstants.ROLE_USER);
+        roleRepository.saveWithoutPermissionCheck(userRole);
+
+        Person user = new Person("user", "u", "u");
+        user.getAclRoles().add(userRole);
+        personRepository.saveWithoutPermissionCheck(user);
+
+        Person user2 = new Person("user2", "u2", "u2");
+        user2.getAclRoles().add(userRole);
+        personRepository.saveWithoutPermissionCheck(user2);
+
+        // The hierarchy is deeper than the max-depth
+        root = folderRepository.saveWithoutPermissionCheck(new Folder("root", user, null));
+        leaf = root;
+        for (int i = 0; i < 4; i++) {
+            leaf = folderRepository.saveWithoutPermissionCheck(new Folder("folder" + i, null, leaf));
+        }
+    }
+
+    public void setAuthentication(String username) {
+        AclUserDetails userDetails = aclUserDetailsService.loadUserByUsername(username);
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, "",
+                userDetails.getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    @Test
+    public void testGivenOwnerOfRootFolderWhenCallFindAllThenReturnAllDescendants() {
+        setAuthentication("user");
+        assertThat(folderRepository.findAll().size(), is(5));
+        assertThat(folderRepository.count(), is(5L));
+        assertNotNull(folderRepository.findOne(leaf.getId()));
+    }
+
+    @Test
+    public void testGivenOwnerOfRootFolderWhenCallFindAllWithPageableThenCountAllDescendants() {
+        setAuthentication("user");
+        Page<Folder> page = folderRepository.findAll(new PageRequest(0, 2));
+        assertThat(page.getContent().size(), is(2));
+        assertThat(page.getTotalElements(), is(5L));
+    }
+
+    @Test
+    public void testGivenNotOwnerOfRootFolderWhenCallFindAllThenReturnNothing() {
+        setAuthentication("user2");
+        assertThat(folderRepository.findAll().size(), is(0));
+        assertNull(folderRepository.findOne(leaf.getId()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.berrycloud.acl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.berrycloud.acl.domain.SimpleAclRole;
+import com.berrycloud.acl.sample.all.AclAppAll;
+import com.berrycloud.acl.sample.all.entity.Folder;
+import com.berrycloud.acl.sample.all.entity.Person;
+import com.berrycloud.acl.sample.all.repository.FolderRepository;
+import com.berrycloud.acl.sample.all.repository.PersonRepository;
+import com.berrycloud.acl.sample.all.repository.RoleRepository;
+import com.berrycloud.acl.security.AclUserDetails;
+import com.berrycloud.acl.security.AclUserDetailsService;
+
+/**
+ * Checks the recursive parent queries collecting more ids than the max-ids limit.
+ */
+@SpringBootTest(classes = AclAppAll.class, properties = { "spring.data.jpa.acl.recursive-parents=true",
+        "spring.data.jpa.acl.recursive-parents.max-ids=4" })
+@RunWith(SpringRunner.class)
+@Transactional
+public class AclRecursiveParentOverflowIntegrationTest {
+
+    @Autowired
+    private AclUserDetailsService<?> aclUserDetailsService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Before
+    public void initTests() {
+        SimpleAclRole userRole = new SimpleAclRole(AclConstants.ROLE_USER);
+        roleRepository.saveWithoutPermissionCheck(userRole);
+
+        Person user = new Person("user", "u", "u");
+        user.getAclRoles().add(userRole);
+        personRepository.saveWithoutPermissionCheck(user);
+
+        Person user2 = new Person("user2", "u2", "u2");
+        user2.getAclRoles().add(userRole);
+        personRepository.saveWithoutPermissionCheck(user2);
+
+        // The root and its descendants are more than the max-ids
+        Folder folder = folderRepository.saveWithoutPermissionCheck(new Folder("root", user, null));
+        for (int i = 0; i < 4; i++) {
+            folder = folderRepository.saveWithoutPermissionCheck(new Folder("folder" + i, null, folder));
+        }
+    }
+
+    public void setAuthentication(String username) {
+        AclUserDetails userDetails = aclUserDetailsService.loadUserByUsername(username);
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, "",
+                userDetails.getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testGivenMoreDescendantsThanMaxIdsWhenCallFindAllThenExceptionIsThrown() {
+        setAuthentication("user");
+        folderRepository.findAll();
+    }
+
+    @Test
+    public void testGivenNoSeedsWhenCallFindAllThenReturnNothing() {
+        setAuthentication("user2");
+        assertThat(folderRepository.findAll().size(), is(0));
+    }
+}
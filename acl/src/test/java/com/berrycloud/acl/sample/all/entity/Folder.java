@@ -0,0 +1,70 @@
+package com.berrycloud.acl.sample.all.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+import com.berrycloud.acl.annotation.AclOwner;
+import com.berrycloud.acl.annotation.AclParent;
+
+@Entity
+public class Folder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Integer id;
+
+    private String name;
+
+    @AclOwner
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Person creator;
+
+    @AclParent
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Folder parent;
+
+    public Folder() {
+    }
+
+    public Folder(String name, Person creator, Folder parent) {
+        this.name = name;
+        this.creator = creator;
+        this.parent = parent;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Person getCreator() {
+        return creator;
+    }
+
+    public void setCreator(Person creator) {
+        this.creator = creator;
+    }
+
+    public Folder getParent() {
+        return parent;
+    }
+
+    public void setParent(Folder parent) {
+        this.parent = parent;
+    }
+}
@@ -0,0 +1,58 @@
+package com.berrycloud.acl.sample.all.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.ManyToOne;
+
+import com.berrycloud.acl.annotation.AclOwner;
+
+@Entity
+@IdClass(MembershipId.class)
+public class Membership {
+
+    @Id
+    private Integer team;
+
+    @Id
+    private String name;
+
+    @AclOwner
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Person owner;
+
+    public Membership() {
+    }
+
+    public Membership(Integer team, String name, Person owner) {
+        this.team = team;
+        this.name = name;
+        this.owner = owner;
+    }
+
+    public Integer getTeam() {
+        return team;
+    }
+
+    public void setTeam(Integer team) {
+        this.team = team;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Person getOwner() {
+        return owner;
+    }
+
+    public void setOwner(Person owner) {
+        this.owner = owner;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.berrycloud.acl.sample.all.entity;
+
+import java.io.Serializable;
+
+public class MembershipId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Integer team;
+
+    private String name;
+
+    public MembershipId() {
+    }
+
+    public MembershipId(Integer team, String name) {
+        this.team = team;
+        this.name = name;
+    }
+
+    public Integer getTeam() {
+        return team;
+    }
+
+    public void setTeam(Integer team) {
+        this.team = team;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (team == null ? 0 : team.hashCode()) + (name == null ? 0 : name.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof MembershipId)) {
+            return false;
+        }
+        MembershipId other = (MembershipId) obj;
+        return (team == null ? other.team == null : team.equals(other.team))
+                && (name == null ? other.name == null : name.equals(other.name));
+    }
+
+}
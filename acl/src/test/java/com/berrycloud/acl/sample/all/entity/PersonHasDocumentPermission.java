@@ -2,12 +2,12 @@ package com.berrycloud.acl.sample.all.entity;
 
 import javax.persistence.Entity;
 
-import com.berrycloud.acl.domain.PermissionLink;
+import com.berrycloud.acl.domain.StructuredPermissionLink;
 
 
 @Entity
 public class PersonHasDocumentPermission
-	extends PermissionLink<Person, Document> {
+	extends StructuredPermissionLink<Person, Document> {
 
     public PersonHasDocumentPermission() {
     }
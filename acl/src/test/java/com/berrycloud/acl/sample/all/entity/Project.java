@@ -10,9 +10,12 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
 
+import com.berrycloud.acl.AclPredicateStrategy;
 import com.berrycloud.acl.annotation.AclParent;
+import com.berrycloud.acl.annotation.AclStrategy;
 
 @Entity
+@AclStrategy(AclPredicateStrategy.EXISTS)
 public class Project {
 
     @Id
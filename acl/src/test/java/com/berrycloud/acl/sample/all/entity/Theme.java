@@ -1,9 +1,14 @@
 package com.berrycloud.acl.sample.all.entity;
 
+import java.util.Date;
+
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 
 import com.berrycloud.acl.repository.NoAcl;
 
@@ -18,6 +23,10 @@ public class Theme {
 	private String name;
 	private String content;
 
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = false)
+	private Date created = new Date();
+
 	public Theme() {
 	}
 
@@ -51,4 +60,12 @@ public class Theme {
 		this.content = content;
 	}
 
+	public Date getCreated() {
+		return created;
+	}
+
+	public void setCreated(Date created) {
+		this.created = created;
+	}
+
 }
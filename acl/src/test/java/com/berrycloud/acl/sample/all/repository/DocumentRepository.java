@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.repository.query.Param;
 
 import com.berrycloud.acl.repository.AclJpaRepository;
@@ -19,4 +20,7 @@ public interface DocumentRepository extends AclJpaRepository<Document, Integer>{
     List<Document> findByCreator(@Param("person") Person person);
 
     Person findCreatorById(@Param("id") Integer id);
+
+    @EntityGraph(attributePaths = "creator")
+    List<Document> findByName(@Param("name") String name);
 }
@@ -0,0 +1,8 @@
+package com.berrycloud.acl.sample.all.repository;
+
+import com.berrycloud.acl.repository.AclJpaRepository;
+import com.berrycloud.acl.sample.all.entity.Folder;
+
+public interface FolderRepository extends AclJpaRepository<Folder, Integer> {
+
+}
@@ -0,0 +1,11 @@
+package com.berrycloud.acl.sample.all.repository;
+
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import com.berrycloud.acl.repository.AclJpaRepository;
+import com.berrycloud.acl.sample.all.entity.Membership;
+import com.berrycloud.acl.sample.all.entity.MembershipId;
+
+@RepositoryRestResource(exported = false)
+public interface MembershipRepository extends AclJpaRepository<Membership, MembershipId>{
+}
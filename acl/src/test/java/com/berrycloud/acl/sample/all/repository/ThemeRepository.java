@@ -1,7 +1,10 @@
 package com.berrycloud.acl.sample.all.repository;
 
+import com.berrycloud.acl.repository.AclCollectionCount;
+import com.berrycloud.acl.repository.AclCountMode;
 import com.berrycloud.acl.repository.AclJpaRepository;
 import com.berrycloud.acl.sample.all.entity.Theme;
 
+@AclCollectionCount(AclCountMode.SLICE)
 public interface ThemeRepository extends AclJpaRepository<Theme, Integer>{
 }